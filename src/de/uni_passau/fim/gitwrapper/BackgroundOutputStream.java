@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An OutputStream that collects the written data in large chunks and hands them over to a background thread, which
+ * writes them to the underlying (usually compressing) stream. This way, the writing thread does not stall while the
+ * data is compressed.
+ */
+class BackgroundOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int QUEUED_CHUNKS = 4;
+
+    /**
+     * Marks a request to flush the underlying stream.
+     */
+    private static final byte[] FLUSH = new byte[0];
+
+    /**
+     * Marks the end of the stream.
+     */
+    private static final byte[] CLOSE = new byte[0];
+
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final BlockingQueue<Object> flushed = new ArrayBlockingQueue<>(1);
+    private final Thread worker;
+
+    private volatile IOException error;
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int count;
+    private boolean closed;
+
+    /**
+     * Creates a new BackgroundOutputStream writing to {@code out}.
+     *
+     * @param out
+     *         the stream the data is written to by the background thread
+     * @param name
+     *         the name of the background thread
+     */
+    BackgroundOutputStream(OutputStream out, String name) {
+        this.out = out;
+        this.worker = new Thread(this::drain, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Writes all queued chunks to the underlying stream until the stream is closed.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                byte[] data = queue.take();
+                if (data == CLOSE) {
+                    return;
+                }
+
+                try {
+                    if (data == FLUSH) {
+                        out.flush();
+                        flushed.put(FLUSH);
+                    } else if (error == null) {
+                        out.write(data);
+                    }
+                } catch (Throwable e) {
+                    // keep draining after any failure, so that writers and flushes are never blocked; compressors
+                    // may throw unchecked exceptions
+                    error = e instanceof IOException ? (IOException) e : new IOException("Could not write the data.", e);
+                    if (data == FLUSH) {
+                        flushed.put(FLUSH);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == chunk.length) {
+            handOver();
+        }
+        chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == chunk.length) {
+                handOver();
+            }
+            int n = Math.min(len, chunk.length - count);
+            System.arraycopy(b, off, chunk, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Waits until all data written so far has been passed to the underlying stream and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        handOver();
+        enqueue(FLUSH);
+        try {
+            flushed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing.");
+        }
+        checkError();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            handOver();
+        } finally {
+            closed = true;
+            try {
+                queue.put(CLOSE);
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while closing.");
+            } finally {
+                out.close();
+            }
+        }
+        checkError();
+    }
+
+    /**
+     * Passes the current chunk to the background thread and starts a new one.
+     */
+    private void handOver() throws IOException {
+        if (count == 0) {
+            return;
+        }
+
+        if (count == chunk.length) {
+            enqueue(chunk);
+            chunk = new byte[CHUNK_SIZE];
+        } else {
+            // partial chunks are only handed over on flush, so copying is cheaper than a new chunk
+            enqueue(Arrays.copyOf(chunk, count));
+        }
+        count = 0;
+    }
+
+    private void enqueue(byte[] data) throws IOException {
+        checkError();
+        try {
+            queue.put(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the background thread.");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+    }
+
+    private void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+}
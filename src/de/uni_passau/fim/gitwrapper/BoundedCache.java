@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache holding at most a given number of entries, evicted in segmented LRU order: New entries enter a
+ * probationary segment and are promoted to a protected segment when they are requested again. Entries are evicted from
+ * the probationary segment first, so that entries requested only once do not displace those requested repeatedly.
+ * An optional listener is notified of evicted entries after the lock of the cache is released.
+ *
+ * @param <K>
+ *         the type of the keys
+ * @param <V>
+ *         the type of the values
+ */
+class BoundedCache<K, V> {
+
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final String name;
+    private final BiConsumer<K, V> evictionListener;
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a new, empty BoundedCache.
+     *
+     * @param name
+     *         the name of the cache, used in its statistics
+     * @param capacity
+     *         the maximum number of entries
+     */
+    BoundedCache(String name, int capacity) {
+        this(name, capacity, (key, value) -> { });
+    }
+
+    /**
+     * Creates a new, empty BoundedCache notifying the given listener of evicted entries.
+     *
+     * @param name
+     *         the name of the cache, used in its statistics
+     * @param capacity
+     *         the maximum number of entries
+     * @param evictionListener
+     *         called with the key and value of every evicted entry, without holding the lock of the cache
+     */
+    BoundedCache(String name, int capacity, BiConsumer<K, V> evictionListener) {
+        this.name = name;
+        this.evictionListener = evictionListener;
+        setCapacity(capacity);
+    }
+
+    /**
+     * Sets the maximum number of entries, evicting entries if the cache holds more.
+     *
+     * @param capacity
+     *         the maximum number of entries, at least 1
+     */
+    void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of a cache must be positive: " + capacity);
+        }
+        List<Map.Entry<K, V>> evicted;
+        synchronized (this) {
+            this.capacity = capacity;
+            evicted = evict();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Gets the value of the given key, counting a hit or a miss.
+     *
+     * @param key
+     *         the key
+     * @return the value, or {@code null} if the cache does not contain the key
+     */
+    synchronized V get(K key) {
+        V value = protectedSegment.get(key);
+        if (value == null) {
+            value = probation.remove(key);
+            if (value != null) {
+                promote(key, value);
+            }
+        }
+
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether the cache contains the given key without counting a hit or a miss or changing the order of
+     * eviction.
+     *
+     * @param key
+     *         the key
+     * @return whether the cache contains the key
+     */
+    synchronized boolean containsKey(K key) {
+        return protectedSegment.containsKey(key) || probation.containsKey(key);
+    }
+
+    /**
+     * Sets the value of the given key.
+     *
+     * @param key
+     *         the key
+     * @param value
+     *         the value, not {@code null}
+     */
+    void put(K key, V value) {
+        List<Map.Entry<K, V>> evicted;
+        synchronized (this) {
+            evicted = insert(key, value);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Sets the value of the given key, if the cache does not contain it.
+     *
+     * @param key
+     *         the key
+     * @param value
+     *         the value, not {@code null}
+     * @return the value already contained in the cache, or {@code null} if {@code value} was added
+     */
+    V putIfAbsent(K key, V value) {
+        V existing;
+        List<Map.Entry<K, V>> evicted = Collections.emptyList();
+        synchronized (this) {
+            existing = get(key);
+            if (existing == null) {
+                evicted = insert(key, value);
+            }
+        }
+        notifyEvicted(evicted);
+        return existing;
+    }
+
+    /**
+     * Gets the value of the given key, computing and adding it if the cache does not contain it. The function is
+     * called while holding the lock of the cache and must therefore be cheap.
+     *
+     * @param key
+     *         the key
+     * @param function
+     *         computes the value of the key
+     * @return the value
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        V value;
+        List<Map.Entry<K, V>> evicted = Collections.emptyList();
+        synchronized (this) {
+            value = get(key);
+            if (value == null) {
+                value = function.apply(key);
+                evicted = insert(key, value);
+            }
+        }
+        notifyEvicted(evicted);
+        return value;
+    }
+
+    /**
+     * Removes the entry of the given key, if it has the given value.
+     *
+     * @param key
+     *         the key
+     * @param value
+     *         the expected value
+     * @return whether the entry was removed
+     */
+    synchronized boolean remove(K key, V value) {
+        return protectedSegment.remove(key, value) || probation.remove(key, value);
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries
+     */
+    synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Sets the value of the given key while holding the lock of the cache.
+     *
+     * @param key
+     *         the key
+     * @param value
+     *         the value, not {@code null}
+     * @return the evicted entries
+     */
+    private List<Map.Entry<K, V>> insert(K key, V value) {
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+            return Collections.emptyList();
+        }
+        probation.put(key, value);
+        return evict();
+    }
+
+    /**
+     * Moves an entry to the protected segment, demoting the least recently used protected entries back to the
+     * probationary segment if the protected segment is full.
+     *
+     * @param key
+     *         the key
+     * @param value
+     *         the value
+     */
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        int protectedCapacity = Math.max(1, (int) (capacity * PROTECTED_SHARE));
+        Iterator<Map.Entry<K, V>> eldest = protectedSegment.entrySet().iterator();
+        while (protectedSegment.size() > protectedCapacity) {
+            Map.Entry<K, V> entry = eldest.next();
+            eldest.remove();
+            probation.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries, probationary ones first, until the capacity is met.
+     *
+     * @return the evicted entries
+     */
+    private List<Map.Entry<K, V>> evict() {
+        List<Map.Entry<K, V>> evicted = Collections.emptyList();
+        while (size() > capacity) {
+            Map<K, V> segment = probation.isEmpty() ? protectedSegment : probation;
+            Iterator<Map.Entry<K, V>> eldest = segment.entrySet().iterator();
+            Map.Entry<K, V> entry = eldest.next();
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            eldest.remove();
+            evictions++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Notifies the eviction listener of the given entries. Must be called without holding the lock of the cache.
+     *
+     * @param evicted
+     *         the evicted entries
+     */
+    private void notifyEvicted(List<Map.Entry<K, V>> evicted) {
+        evicted.forEach(entry -> evictionListener.accept(entry.getKey(), entry.getValue()));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d of %d entries, %d hits, %d misses, %d evictions",
+                name, size(), capacity, hits, misses, evictions);
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * The CatFileProcess reads commits from a local repository through a long-lived {@code git cat-file --batch} process
+ * instead of starting git for every commit. Requests of several threads are serialized, and the hashes of a request are
+ * written to git in chunks, so that git answers them while the next ones are being parsed. If the process dies, it is
+ * started again.
+ */
+class CatFileProcess implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(CatFileProcess.class.getCanonicalName());
+
+    /**
+     * The number of hashes written before the answers are read. Chunks are small enough to fit into the pipe buffer,
+     * so that writing them never blocks while git waits for its answers to be read.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    private final Repository repo;
+    private final String git;
+
+    private Process process;
+    private OutputStream input;
+    private InputStream output;
+
+    /**
+     * Creates a new CatFileProcess for the given repository. The process is started on the first request.
+     *
+     * @param repo
+     *         the local repository
+     * @param git
+     *         the git executable
+     */
+    CatFileProcess(Repository repo, String git) {
+        this.repo = repo;
+        this.git = git;
+    }
+
+    /**
+     * Reads a single commit.
+     *
+     * @param id
+     *         the (abbreviated) hash of the commit
+     * @return optionally the commit, or an empty Optional if the repository contains no such commit
+     */
+    Optional<GitHubCommit> read(String id) {
+        return Optional.ofNullable(read(Collections.singletonList(id)).get(id));
+    }
+
+    /**
+     * Reads the given commits, restarting git once if it fails. Commits that cannot be parsed are skipped.
+     *
+     * @param ids
+     *         the (abbreviated) hashes of the commits
+     * @return the commits found in the repository by the hash they were requested with
+     */
+    synchronized Map<String, GitHubCommit> read(Collection<String> ids) {
+        Map<String, GitHubCommit> commits = new HashMap<>();
+        List<String> remaining = new ArrayList<>(ids);
+        remaining.removeIf(id -> id.isEmpty() || id.contains("\n"));
+
+        for (int attempt = 0; attempt < 2 && !remaining.isEmpty(); attempt++) {
+            try {
+                if (process == null || !process.isAlive()) {
+                    start();
+                }
+                while (!remaining.isEmpty()) {
+                    List<String> chunk = remaining.subList(0, Math.min(CHUNK_SIZE, remaining.size()));
+                    readChunk(chunk, commits);
+                    chunk.clear();
+                }
+            } catch (IOException e) {
+                LOG.warning(String.format("git cat-file failed in %s, restarting: %s", repo.getDir(), e));
+                stop();
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Writes a chunk of hashes to git and reads the answers.
+     *
+     * @param chunk
+     *         the hashes
+     * @param commits
+     *         receives the commits
+     * @throws IOException
+     *         if the communication with git fails or its output is malformed
+     */
+    private void readChunk(List<String> chunk, Map<String, GitHubCommit> commits) throws IOException {
+        StringBuilder request = new StringBuilder();
+        chunk.forEach(id -> request.append(id).append('\n'));
+        input.write(request.toString().getBytes(StandardCharsets.UTF_8));
+        input.flush();
+
+        for (String id : chunk) {
+            String header = readLine();
+            String[] parts = header.split(" ");
+            if (parts.length != 3) {
+                // missing or ambiguous
+                continue;
+            }
+
+            byte[] content;
+            try {
+                content = new byte[Integer.parseInt(parts[2])];
+            } catch (NumberFormatException | NegativeArraySizeException e) {
+                throw new IOException("Malformed output of git cat-file for " + id + ": " + header);
+            }
+            int read = 0;
+            while (read < content.length) {
+                int n = output.read(content, read, content.length - read);
+                if (n < 0) {
+                    throw new EOFException("git cat-file ended unexpectedly");
+                }
+                read += n;
+            }
+            if (output.read() != '\n') {
+                throw new IOException("Malformed output of git cat-file for " + id);
+            }
+
+            if (parts[1].equals("commit")) {
+                try {
+                    commits.put(id, parse(parts[0], new String(content, StandardCharsets.UTF_8)));
+                } catch (RuntimeException e) {
+                    // e.g., a malformed time zone in an old commit, which must not cost the rest of the chunk
+                    LOG.warning(String.format("Could not parse commit %s in %s: %s", parts[0], repo.getDir(), e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a raw commit object.
+     *
+     * @param id
+     *         the full hash of the commit
+     * @param raw
+     *         the content of the commit object
+     * @return the commit
+     */
+    private GitHubCommit parse(String id, String raw) {
+        int end = raw.indexOf("\n\n");
+        String headers = end < 0 ? raw : raw.substring(0, end);
+        String message = end < 0 ? "" : raw.substring(end + 2);
+
+        List<String> parents = new ArrayList<>();
+        String author = null;
+        String committer = null;
+        for (String line : headers.split("\n")) {
+            if (line.startsWith("parent ")) {
+                parents.add(line.substring("parent ".length()));
+            } else if (line.startsWith("author ")) {
+                author = line.substring("author ".length());
+            } else if (line.startsWith("committer ")) {
+                committer = line.substring("committer ".length());
+            }
+        }
+
+        GitHubCommit commit = new GitHubCommit(repo, id, parents);
+        commit.setMessage(message);
+        if (author != null) {
+            commit.setAuthor(getName(author));
+            commit.setAuthorMail(getMail(author));
+            commit.setAuthorTime(getTime(author));
+        }
+        if (committer != null) {
+            commit.setCommitter(getName(committer));
+            commit.setCommitterMail(getMail(committer));
+            commit.setCommitterTime(getTime(committer));
+        }
+        return commit;
+    }
+
+    /**
+     * Gets the name from a person line of the form {@code Name <mail> seconds offset}.
+     *
+     * @param person
+     *         the person line
+     * @return the name
+     */
+    private static String getName(String person) {
+        int mailStart = person.lastIndexOf('<');
+        return mailStart < 1 ? "" : person.substring(0, mailStart - 1);
+    }
+
+    /**
+     * Gets the email address from a person line of the form {@code Name <mail> seconds offset}.
+     *
+     * @param person
+     *         the person line
+     * @return the email address
+     */
+    private static String getMail(String person) {
+        int mailStart = person.lastIndexOf('<');
+        int mailEnd = person.lastIndexOf('>');
+        return mailStart < 0 || mailEnd < mailStart ? "" : person.substring(mailStart + 1, mailEnd);
+    }
+
+    /**
+     * Gets the time from a person line of the form {@code Name <mail> seconds offset}.
+     *
+     * @param person
+     *         the person line
+     * @return the time
+     */
+    private static OffsetDateTime getTime(String person) {
+        String[] time = person.substring(person.lastIndexOf('>') + 1).trim().split(" ");
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(time[0])), ZoneOffset.of(time[1]));
+    }
+
+    /**
+     * Reads a line of the output of git.
+     *
+     * @return the line without the line break
+     * @throws IOException
+     *         if git ended or the output cannot be read
+     */
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = output.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("git cat-file ended unexpectedly");
+            }
+            line.write(c);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts git.
+     *
+     * @throws IOException
+     *         if git cannot be started
+     */
+    private void start() throws IOException {
+        process = new ProcessBuilder(git, "cat-file", "--batch")
+                .directory(repo.getDir())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        input = new BufferedOutputStream(process.getOutputStream());
+        output = new BufferedInputStream(process.getInputStream());
+    }
+
+    /**
+     * Stops git, if it is running.
+     */
+    private void stop() {
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (process != null) {
+            try {
+                // git ends at the end of its input
+                input.close();
+            } catch (IOException e) {
+                LOG.fine("Could not close the input of git cat-file: " + e);
+            }
+            stop();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * The CommitGraph holds the parents, generation numbers, and commit times of all commits of a local repository in
+ * primitive arrays, so that ancestry and merge base queries do not call git. The graph is read with a single run of
+ * {@code git log --all}; commits added to the repository afterwards are not part of it.
+ *
+ * The generation number of a commit is one more than the maximum generation number of its parents. A commit can only
+ * be an ancestor of commits with a higher generation number, which bounds the parts of the graph that are searched.
+ */
+class CommitGraph {
+
+    private static final Logger LOG = Logger.getLogger(CommitGraph.class.getCanonicalName());
+
+    private static final int[] NO_PARENTS = new int[0];
+
+    private final Map<String, Integer> ids;
+    private final String[] hashes;
+    private final int[][] parents;
+    private final int[] generations;
+    private final long[] commitTimes;
+
+    /**
+     * Creates a new CommitGraph.
+     *
+     * @param ids
+     *         the IDs of the commits by hash
+     * @param hashes
+     *         the hashes by ID
+     * @param parents
+     *         the IDs of the parents by ID
+     * @param generations
+     *         the generation numbers by ID
+     * @param commitTimes
+     *         the commit times in seconds since the epoch by ID
+     */
+    private CommitGraph(Map<String, Integer> ids, String[] hashes, int[][] parents, int[] generations, long[] commitTimes) {
+        this.ids = ids;
+        this.hashes = hashes;
+        this.parents = parents;
+        this.generations = generations;
+        this.commitTimes = commitTimes;
+    }
+
+    /**
+     * Reads the graph of all commits reachable from any reference of the given repository.
+     *
+     * @param git
+     *         the git executable
+     * @param dir
+     *         the directory of the repository
+     * @return optionally the graph, or an empty Optional if git failed
+     */
+    static Optional<CommitGraph> read(String git, File dir) {
+        // children are listed before their parents, so IDs can be assigned in one pass and generations in a second one
+        ProcessBuilder builder = new ProcessBuilder(git, "log", "--all", "--topo-order", "--format=%H %ct %P")
+                .directory(dir)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        List<String[]> lines = new ArrayList<>();
+        try {
+            Process process = builder.start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        lines.add(line.split(" "));
+                    }
+                }
+            }
+            if (process.waitFor() != 0) {
+                LOG.warning("Could not read the commit graph of " + dir);
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            LOG.warning("Could not read the commit graph of " + dir + ": " + e);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+
+        int size = lines.size();
+        Map<String, Integer> ids = new HashMap<>(2 * size);
+        String[] hashes = new String[size];
+        long[] commitTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = lines.get(i)[0];
+            commitTimes[i] = Long.parseLong(lines.get(i)[1]);
+            ids.put(hashes[i], i);
+        }
+
+        int[][] parents = new int[size][];
+        int[] generations = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            String[] line = lines.get(i);
+            parents[i] = line.length > 2 ? new int[line.length - 2] : NO_PARENTS;
+            int generation = 1;
+            for (int p = 0; p < parents[i].length; p++) {
+                Integer parent = ids.get(line[p + 2]);
+                if (parent == null) {
+                    // parents missing in shallow clones
+                    parents[i] = Arrays.copyOf(parents[i], p);
+                    break;
+                }
+                parents[i][p] = parent;
+                generation = Math.max(generation, generations[parent] + 1);
+            }
+            generations[i] = generation;
+        }
+
+        LOG.fine(String.format("Read commit graph of %s with %d commits", dir, size));
+        return Optional.of(new CommitGraph(ids, hashes, parents, generations, commitTimes));
+    }
+
+    /**
+     * Gets the number of commits in the graph.
+     *
+     * @return the number of commits
+     */
+    int size() {
+        return hashes.length;
+    }
+
+    /**
+     * Checks whether {@code ancestor} is an ancestor of {@code descendant}. Every commit is its own ancestor.
+     *
+     * @param ancestor
+     *         the full hash of the possible ancestor
+     * @param descendant
+     *         the full hash of the possible descendant
+     * @return optionally whether {@code ancestor} is an ancestor, or an empty Optional if either commit is not part of
+     *         the graph
+     */
+    Optional<Boolean> isAncestor(String ancestor, String descendant) {
+        Integer a = ids.get(ancestor);
+        Integer d = ids.get(descendant);
+        if (a == null || d == null) {
+            return Optional.empty();
+        }
+        return Optional.of(isAncestor(a, d));
+    }
+
+    /**
+     * Checks whether commit {@code a} is an ancestor of commit {@code d} by searching the ancestors of {@code d} whose
+     * generation number is higher than the one of {@code a}.
+     *
+     * @param a
+     *         the ID of the possible ancestor
+     * @param d
+     *         the ID of the possible descendant
+     * @return whether {@code a} is an ancestor of {@code d}
+     */
+    private boolean isAncestor(int a, int d) {
+        if (a == d) {
+            return true;
+        }
+        int minGeneration = generations[a];
+        if (generations[d] <= minGeneration) {
+            return false;
+        }
+
+        BitSet visited = new BitSet();
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = d;
+        visited.set(d);
+        while (top > 0) {
+            int c = stack[--top];
+            for (int p : parents[c]) {
+                if (p == a) {
+                    return true;
+                }
+                if (generations[p] > minGeneration && !visited.get(p)) {
+                    visited.set(p);
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    }
+                    stack[top++] = p;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds a best common ancestor of the given commits, that is, a common ancestor that is no ancestor of any other
+     * common ancestor. If there are several, the one with the highest generation number is returned.
+     *
+     * @param first
+     *         the full hash of the first commit
+     * @param second
+     *         the full hash of the second commit
+     * @return optionally the full hash of the merge base, or an empty Optional if either commit is not part of the
+     *         graph or the commits have no common ancestor
+     */
+    Optional<String> getMergeBase(String first, String second) {
+        Integer a = ids.get(first);
+        Integer b = ids.get(second);
+        if (a == null || b == null) {
+            return Optional.empty();
+        }
+
+        // walk both histories by decreasing generation, marking which side reached a commit; the first commit
+        // reached from both sides has no common ancestor with a higher generation number
+        final byte FIRST = 1;
+        final byte SECOND = 2;
+        Map<Integer, Byte> reached = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                Comparator.comparingInt((Integer c) -> generations[c]).reversed().thenComparingLong(c -> -commitTimes[c]));
+        reached.put(a, FIRST);
+        reached.merge(b, SECOND, (x, y) -> (byte) (x | y));
+        queue.add(a);
+        if (!a.equals(b)) {
+            queue.add(b);
+        }
+
+        while (!queue.isEmpty()) {
+            int c = queue.poll();
+            byte sides = reached.get(c);
+            if (sides == (FIRST | SECOND)) {
+                return Optional.of(hashes[c]);
+            }
+            for (int p : parents[c]) {
+                Byte before = reached.get(p);
+                if (before == null) {
+                    reached.put(p, sides);
+                    queue.add(p);
+                } else if ((before | sides) != before) {
+                    reached.put(p, (byte) (before | sides));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the commits reachable from {@code head}, but not from {@code base}, just like {@code git log base..head}.
+     *
+     * @param base
+     *         the full hash of the excluded commit
+     * @param head
+     *         the full hash of the included commit
+     * @return optionally the full hashes of the commits, parents before their children, or an empty Optional if
+     *         either commit is not part of the graph
+     */
+    Optional<List<String>> getCommitsBetween(String base, String head) {
+        Integer b = ids.get(base);
+        Integer h = ids.get(head);
+        if (b == null || h == null) {
+            return Optional.empty();
+        }
+
+        // walk both histories by decreasing generation, so that all children of a commit are visited before it; the
+        // walk ends as soon as every remaining commit is reachable from the base
+        final byte HEAD = 1;
+        final byte BASE = 2;
+        Map<Integer, Byte> reached = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.comparingInt((Integer c) -> generations[c]).reversed());
+        reached.put(h, HEAD);
+        reached.merge(b, BASE, (x, y) -> (byte) (x | y));
+        queue.add(h);
+        if (!h.equals(b)) {
+            queue.add(b);
+        }
+        int headOnly = reached.get(h) == HEAD ? 1 : 0;
+
+        List<String> commits = new ArrayList<>();
+        while (headOnly > 0) {
+            int c = queue.poll();
+            byte sides = reached.get(c);
+            if (sides == HEAD) {
+                headOnly--;
+                commits.add(hashes[c]);
+            }
+            for (int p : parents[c]) {
+                Byte before = reached.get(p);
+                if (before == null) {
+                    reached.put(p, sides);
+                    queue.add(p);
+                    if (sides == HEAD) {
+                        headOnly++;
+                    }
+                } else if ((before | sides) != before) {
+                    reached.put(p, (byte) (before | sides));
+                    if (before == HEAD) {
+                        headOnly--;
+                    }
+                }
+            }
+        }
+
+        Collections.reverse(commits);
+        return Optional.of(commits);
+    }
+}
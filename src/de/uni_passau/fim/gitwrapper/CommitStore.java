@@ -0,0 +1,446 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * The CommitStore persists the results of commit lookups on GitHub across runs, so that the commits referenced in
+ * issues do not have to be queried again. Resolved commits are shared by all repositories under their full hash, as
+ * it identifies a commit everywhere. Abbreviated hashes, however, are resolved per repository, and hashes GitHub does
+ * not know are remembered per repository for a limited time only, as they may refer to commits that were not pushed
+ * yet.
+ *
+ * The store is a single append-only file of records keyed by the binary form of the (abbreviated) hash and the URL of
+ * the repository, which is empty for full hashes of resolved commits. Existing records are read from a memory-mapped
+ * view of the file when the store is opened; newer records supersede older ones.
+ */
+public class CommitStore implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(CommitStore.class.getCanonicalName());
+
+    private static final int MAGIC = 0x47484353; // "GHCS"
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 8;
+
+    private static final int MAX_HASH_LENGTH = 40;
+    private static final int KEY_LENGTH = MAX_HASH_LENGTH / 2;
+    private static final int RECORD_HEADER_LENGTH = 1 + KEY_LENGTH + 1 + 2 + 8 + 4;
+
+    /**
+     * The scope of resolved commits stored under their full hash.
+     */
+    private static final String ANY_REPOSITORY = "";
+
+    private static final byte UNKNOWN = 0;
+    private static final byte KNOWN = 1;
+
+    /**
+     * The default time after which an unknown hash is queried again.
+     */
+    public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofDays(7);
+
+    private final File file;
+    private final Duration negativeTtl;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * A stored lookup result.
+     */
+    static class Entry {
+
+        private final boolean known;
+        private final long time;
+        private final MappedByteBuffer source;
+        private final int offset;
+        private final int length;
+        private final String payload;
+
+        /**
+         * Creates a new Entry whose commit is read from the mapped file when needed.
+         *
+         * @param known
+         *         whether the hash is known
+         * @param time
+         *         the time of the lookup in seconds since the epoch
+         * @param source
+         *         the mapped file
+         * @param offset
+         *         the offset of the commit in the mapped file
+         * @param length
+         *         the length of the commit in bytes
+         */
+        private Entry(boolean known, long time, MappedByteBuffer source, int offset, int length) {
+            this.known = known;
+            this.time = time;
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+            this.payload = null;
+        }
+
+        /**
+         * Creates a new Entry for a lookup of the current run.
+         *
+         * @param known
+         *         whether the hash is known
+         * @param time
+         *         the time of the lookup in seconds since the epoch
+         * @param payload
+         *         the commit, or {@code null} if the hash is unknown
+         */
+        private Entry(boolean known, long time, String payload) {
+            this.known = known;
+            this.time = time;
+            this.source = null;
+            this.offset = 0;
+            this.length = 0;
+            this.payload = payload;
+        }
+
+        /**
+         * Checks whether GitHub knows the commit.
+         *
+         * @return whether the commit is known
+         */
+        boolean isKnown() {
+            return known;
+        }
+
+        /**
+         * Gets the stored commit data, as returned by {@link GitHubCommitProcessor#readCommit(String)}.
+         *
+         * @return optionally the commit data, or an empty Optional if the hash is unknown or the data is damaged
+         */
+        Optional<JsonObject> getCommit() {
+            if (!known) {
+                return Optional.empty();
+            }
+
+            String json = payload;
+            if (json == null) {
+                byte[] bytes = new byte[length];
+                ByteBuffer view = source.duplicate();
+                view.position(offset);
+                view.get(bytes);
+                json = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            try {
+                return Optional.of(new JsonParser().parse(json).getAsJsonObject());
+            } catch (JsonParseException | IllegalStateException e) {
+                LOG.warning("Could not decode stored commit: " + e);
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Opens the store in the given file, creating it if needed. Unknown hashes are queried again after
+     * {@link #DEFAULT_NEGATIVE_TTL}.
+     *
+     * @param file
+     *         the file
+     * @throws IOException
+     *         if the file cannot be read or created
+     */
+    public CommitStore(File file) throws IOException {
+        this(file, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Opens the store in the given file, creating it if needed.
+     *
+     * @param file
+     *         the file
+     * @param negativeTtl
+     *         the time after which a hash unknown to GitHub is queried again
+     * @throws IOException
+     *         if the file cannot be read or created, or if it is not a commit store
+     */
+    public CommitStore(File file, Duration negativeTtl) throws IOException {
+        this.file = file;
+        this.negativeTtl = negativeTtl;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            write(header, 0);
+            mapped = null;
+            return;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Commit store too large: " + file);
+        }
+        MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (size < HEADER_LENGTH || existing.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("Not a commit store: " + file);
+        }
+        if (existing.getInt(4) != VERSION) {
+            // the stored lookups can be repeated, so an outdated store is simply started over
+            LOG.warning(String.format("Discarding commit store %s of unsupported version %d", file, existing.getInt(4)));
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            write(header, 0);
+            mapped = null;
+            return;
+        }
+        mapped = existing;
+
+        long end = scan();
+        if (end < size) {
+            LOG.warning(String.format("Ignoring %d bytes of incomplete records at the end of %s", size - end, file));
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * Reads the records of the mapped file.
+     *
+     * @return the offset after the last complete record
+     */
+    private long scan() {
+        int position = HEADER_LENGTH;
+        int limit = mapped.limit();
+        byte[] key = new byte[KEY_LENGTH];
+        while (position + RECORD_HEADER_LENGTH <= limit) {
+            int digits = mapped.get(position) & 0xFF;
+            ByteBuffer view = mapped.duplicate();
+            view.position(position + 1);
+            view.get(key);
+            byte kind = mapped.get(position + 1 + KEY_LENGTH);
+            int scopeLength = mapped.getShort(position + 2 + KEY_LENGTH) & 0xFFFF;
+            long time = mapped.getLong(position + 4 + KEY_LENGTH);
+            int length = mapped.getInt(position + 12 + KEY_LENGTH);
+            int payload = position + RECORD_HEADER_LENGTH + scopeLength;
+            if (digits > MAX_HASH_LENGTH || length < 0 || payload + length > limit) {
+                break;
+            }
+
+            byte[] scope = new byte[scopeLength];
+            view.position(position + RECORD_HEADER_LENGTH);
+            view.get(scope);
+            String entryKey = key(decode(key, digits), new String(scope, StandardCharsets.UTF_8));
+            if (kind == KNOWN) {
+                entries.put(entryKey, new Entry(true, time, mapped, payload, length));
+            } else {
+                entries.put(entryKey, new Entry(false, time, null));
+            }
+            position = payload + length;
+        }
+        return position;
+    }
+
+    /**
+     * Gets the stored result of a previous lookup of the given hash. Commits resolved from a full hash are reported
+     * for all repositories, while abbreviated hashes are only reported for the repository they were resolved in.
+     * Hashes that were unknown are only reported for the repository they were looked up in and until they expire.
+     *
+     * @param hash
+     *         the (abbreviated) hash
+     * @param scope
+     *         the URL of the repository of the lookup
+     * @return optionally the stored result, or an empty Optional if the hash has to be looked up
+     */
+    Optional<Entry> get(String hash, String scope) {
+        Entry entry = entries.get(key(hash, ANY_REPOSITORY));
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+
+        entry = entries.get(key(hash, scope));
+        if (entry == null || (!entry.known && Instant.ofEpochSecond(entry.time).plus(negativeTtl).isBefore(Instant.now()))) {
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Stores a commit found on GitHub under its full hash and, if it was looked up with an abbreviated hash, under the
+     * abbreviated hash for the given repository.
+     *
+     * @param hash
+     *         the (abbreviated) hash the commit was looked up with
+     * @param scope
+     *         the URL of the repository of the lookup
+     * @param commit
+     *         the commit data, as returned by {@link GitHubCommitProcessor#readCommit(String)}
+     */
+    synchronized void putCommit(String hash, String scope, JsonObject commit) {
+        String json = commit.toString();
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        String sha = commit.get("sha").getAsString();
+        long time = Instant.now().getEpochSecond();
+        if (append(sha, KNOWN, ANY_REPOSITORY, payload)) {
+            entries.put(key(sha, ANY_REPOSITORY), new Entry(true, time, json));
+        }
+        if (!hash.equals(sha) && append(hash, KNOWN, scope, payload)) {
+            entries.put(key(hash, scope), new Entry(true, time, json));
+        }
+    }
+
+    /**
+     * Stores that GitHub does not know the given hash in the given repository.
+     *
+     * @param hash
+     *         the (abbreviated) hash
+     * @param scope
+     *         the URL of the repository of the lookup
+     */
+    synchronized void putUnknown(String hash, String scope) {
+        if (append(hash, UNKNOWN, scope, new byte[0])) {
+            entries.put(key(hash, scope), new Entry(false, Instant.now().getEpochSecond(), null));
+        }
+    }
+
+    /**
+     * Appends a record to the file.
+     *
+     * @param hash
+     *         the hash
+     * @param kind
+     *         the kind of the record
+     * @param scope
+     *         the URL of the repository of the lookup, or {@link #ANY_REPOSITORY}
+     * @param payload
+     *         the payload
+     * @return whether the record was written
+     */
+    private boolean append(String hash, byte kind, String scope, byte[] payload) {
+        byte[] key = encode(hash);
+        byte[] scopeBytes = scope.getBytes(StandardCharsets.UTF_8);
+        if (key == null || scopeBytes.length > 0xFFFF) {
+            return false;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + scopeBytes.length + payload.length);
+        record.put((byte) hash.length()).put(key).put(kind).putShort((short) scopeBytes.length)
+                .putLong(Instant.now().getEpochSecond()).putInt(payload.length).put(scopeBytes).put(payload);
+        record.flip();
+
+        try {
+            write(record, channel.size());
+            return true;
+        } catch (IOException e) {
+            LOG.warning("Could not write to commit store " + file + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the given buffer completely at the given position.
+     *
+     * @param buffer
+     *         the buffer
+     * @param position
+     *         the position in the file
+     * @throws IOException
+     *         if writing fails
+     */
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Packs a hash of lower-case hex digits into bytes.
+     *
+     * @param hash
+     *         the hash
+     * @return the packed hash, or {@code null} if it is not a hash
+     */
+    private static byte[] encode(String hash) {
+        if (hash.isEmpty() || hash.length() > MAX_HASH_LENGTH) {
+            return null;
+        }
+
+        byte[] key = new byte[KEY_LENGTH];
+        for (int i = 0; i < hash.length(); i++) {
+            int digit = Character.digit(hash.charAt(i), 16);
+            if (digit < 0 || Character.isUpperCase(hash.charAt(i))) {
+                return null;
+            }
+            key[i / 2] |= (i % 2 == 0) ? digit << 4 : digit;
+        }
+        return key;
+    }
+
+    /**
+     * Unpacks a hash.
+     *
+     * @param key
+     *         the packed hash
+     * @param digits
+     *         the number of hex digits
+     * @return the hash
+     */
+    private static String decode(byte[] key, int digits) {
+        char[] hash = new char[digits];
+        for (int i = 0; i < digits; i++) {
+            int digit = (i % 2 == 0) ? (key[i / 2] >> 4) & 0xF : key[i / 2] & 0xF;
+            hash[i] = Character.forDigit(digit, 16);
+        }
+        return new String(hash);
+    }
+
+    /**
+     * Gets the key of a hash in the given repository.
+     *
+     * @param hash
+     *         the hash
+     * @param scope
+     *         the URL of the repository, or {@link #ANY_REPOSITORY}
+     * @return the key
+     */
+    private static String key(String hash, String scope) {
+        return hash + "/" + scope;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Enumeration of the compression codecs a dump can be written and read with.
+ */
+public enum DumpCompression {
+
+    /**
+     * Plain, uncompressed dumps.
+     */
+    NONE(""),
+
+    /**
+     * Dumps compressed with gzip (file extension {@code .gz}).
+     */
+    GZIP(".gz"),
+
+    /**
+     * Dumps compressed with Zstandard (file extension {@code .zst}).
+     */
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+
+    /**
+     * Creates a new DumpCompression.
+     *
+     * @param extension
+     *         the file extension of dumps compressed with this codec
+     */
+    DumpCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the file extension (including the leading dot) of dumps compressed with this codec.
+     *
+     * @return the file extension, or an empty String for uncompressed dumps
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Determines the compression of a dump by the extension of its file name.
+     *
+     * @param file
+     *         the dump file
+     * @return the compression matching the file extension, or {@link #NONE} if the extension is unknown
+     */
+    public static DumpCompression fromFileName(File file) {
+        String name = file.getName();
+        for (DumpCompression compression : values()) {
+            if (compression != NONE && name.endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Determines the compression of a dump by the magic bytes at the start of the stream. The position of the stream
+     * is not changed.
+     *
+     * @param in
+     *         the stream positioned at the start of the dump, must support {@link InputStream#mark(int)}
+     * @return the compression used for the stream
+     * @throws IOException
+     *         if the stream cannot be read
+     */
+    static DumpCompression detect(InputStream in) throws IOException {
+        byte[] magic = new byte[4];
+        in.mark(magic.length);
+        int read = 0;
+        int n;
+        while (read < magic.length && (n = in.read(magic, read, magic.length - read)) != -1) {
+            read += n;
+        }
+        in.reset();
+
+        if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return GZIP;
+        }
+        if (read >= 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps the given stream, so that everything written to the returned stream is compressed with this codec.
+     * Compression is carried out by a background thread, so the writer does not stall. Closing the returned stream
+     * closes {@code out} as well.
+     *
+     * @param out
+     *         the stream to write the compressed data to
+     * @return the stream to write the uncompressed data to
+     * @throws IOException
+     *         if the compressor cannot be initialized
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        switch (this) {
+            case GZIP:
+                // sync flushing allows to persist a consistent prefix of the dump on flush
+                return new BackgroundOutputStream(new GZIPOutputStream(buffered, BUFFER_SIZE, true), "gzip-dump-writer");
+            case ZSTD:
+                return new BackgroundOutputStream(new ZstdOutputStream(buffered), "zstd-dump-writer");
+            default:
+                return buffered;
+        }
+    }
+
+    /**
+     * Opens a dump for reading. The compression of the dump is detected by its magic bytes, so the file name is not
+     * taken into account.
+     *
+     * @param file
+     *         the dump file
+     * @return a buffered stream of the uncompressed dump
+     * @throws IOException
+     *         if the file cannot be opened or the decompressor cannot be initialized
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            switch (detect(in)) {
+                case GZIP:
+                    return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+                case ZSTD:
+                    return new BufferedInputStream(new ZstdInputStream(in), BUFFER_SIZE);
+                default:
+                    return in;
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
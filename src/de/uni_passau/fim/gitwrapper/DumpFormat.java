@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Enumeration of the layouts an issue dump can be written in.
+ */
+public enum DumpFormat {
+
+    /**
+     * A single, pretty-printed JSON array containing all issues.
+     *
+     * @see GitHubRepository#streamSerialize(java.io.OutputStreamWriter, java.util.List)
+     */
+    JSON,
+
+    /**
+     * Newline-delimited JSON, one compact issue per line.
+     *
+     * @see GitHubRepository#streamSerializeLines(java.io.OutputStream, java.util.List)
+     */
+    NDJSON,
+
+    /**
+     * A single JSON object with tables of all users and commits, which are referenced from the issues by their IDs.
+     * The issues are grouped by repository, so one dump can hold the data of multiple repositories.
+     *
+     * @see NormalizedDumpWriter
+     */
+    NORMALIZED;
+
+    /**
+     * The start of every normalized dump.
+     */
+    static final String NORMALIZED_HEADER = "{\"layout\":\"normalized\"";
+
+    /**
+     * Determines the format of the dump that can be read from the given reader by looking at its first characters.
+     * Leading whitespace is skipped, otherwise the position of the reader is not changed.
+     *
+     * @param reader
+     *         the reader positioned at the start of the dump
+     * @return the format of the dump
+     * @throws IOException
+     *         if the reader cannot be read
+     */
+    static DumpFormat detect(BufferedReader reader) throws IOException {
+        int c;
+        do {
+            reader.mark(1);
+            c = reader.read();
+        } while (c != -1 && Character.isWhitespace(c));
+        if (c == -1) {
+            return JSON;
+        }
+        reader.reset();
+
+        if (c != '{') {
+            // an array starts the classic dump
+            return JSON;
+        }
+
+        // normalized dumps start with a header, every other dump starts with the first issue object
+        char[] start = new char[NORMALIZED_HEADER.length()];
+        reader.mark(start.length);
+        int read = 0;
+        int n;
+        while (read < start.length && (n = reader.read(start, read, start.length - read)) != -1) {
+            read += n;
+        }
+        reader.reset();
+
+        return NORMALIZED_HEADER.equals(new String(start, 0, read)) ? NORMALIZED : NDJSON;
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.*;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+/**
+ * Index of an uncompressed {@link DumpFormat#NDJSON NDJSON} dump, stored in a sidecar file next to the dump. For
+ * every issue, the index holds the position and length of its line in the dump, its creation time, and its state,
+ * so that single issues can be read from the dump without parsing all others.
+ *
+ * @see IndexedDumpReader
+ */
+public class DumpIndex {
+
+    /**
+     * The file extension of index files, which is appended to the name of the dump.
+     */
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x47485749; // "GHWI"
+    private static final int VERSION = 1;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private Map<Integer, Entry> byNumber;
+    private List<Entry> byCreation;
+    private Map<State, List<Entry>> byState;
+
+    /**
+     * Position of a single issue in a dump.
+     */
+    public static class Entry {
+
+        private final int number;
+        private final long offset;
+        private final int length;
+        private final long created;
+        private final State state;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param number
+         *         the number of the issue
+         * @param offset
+         *         the byte offset of the issue in the dump
+         * @param length
+         *         the length of the issue in bytes, excluding the line break
+         * @param created
+         *         the creation time of the issue in seconds since the epoch, or {@link Long#MIN_VALUE} if unknown
+         * @param state
+         *         the state of the issue, may be {@code null}
+         */
+        Entry(int number, long offset, int length, long created, State state) {
+            this.number = number;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+            this.state = state;
+        }
+
+        /**
+         * Gets the number of the issue.
+         *
+         * @return the number
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Gets the byte offset of the issue in the dump.
+         *
+         * @return the offset
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets the length of the issue in bytes.
+         *
+         * @return the length
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the state of the issue.
+         *
+         * @return the state, or {@code null} if unknown
+         */
+        public State getState() {
+            return state;
+        }
+    }
+
+    /**
+     * Adds the position of an issue to the index.
+     *
+     * @param issue
+     *         the issue
+     * @param offset
+     *         the byte offset of the issue in the dump
+     * @param length
+     *         the length of the issue in bytes, excluding the line break
+     */
+    void add(IssueData issue, long offset, int length) {
+        long created = issue.getCreateDate() == null ? Long.MIN_VALUE : issue.getCreateDate().toEpochSecond();
+        entries.add(new Entry(issue.getNumber(), offset, length, created, issue.getState()));
+        byNumber = null;
+    }
+
+    /**
+     * Gets all entries in the order the issues appear in the dump.
+     *
+     * @return the list of entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the entry of the issue with the given number.
+     *
+     * @param number
+     *         the number of the issue
+     * @return optionally the entry, or an empty Optional if the issue is not part of the dump
+     */
+    public Optional<Entry> get(int number) {
+        buildLookups();
+        return Optional.ofNullable(byNumber.get(number));
+    }
+
+    /**
+     * Gets the entries of all issues whose number lies in the given range, ordered by number.
+     *
+     * @param from
+     *         the lowest issue number (inclusive)
+     * @param to
+     *         the highest issue number (inclusive)
+     * @return the list of entries
+     */
+    public List<Entry> getRange(int from, int to) {
+        buildLookups();
+        List<Entry> result = new ArrayList<>();
+        if (to - (long) from < byNumber.size()) {
+            for (long n = from; n <= to; n++) {
+                Entry entry = byNumber.get((int) n);
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+        } else {
+            entries.stream().filter(e -> e.number >= from && e.number <= to).forEach(result::add);
+            result.sort(Comparator.comparingInt(Entry::getNumber));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the entries of all issues created in the given time span, ordered by creation time.
+     *
+     * @param from
+     *         the start of the time span (inclusive)
+     * @param to
+     *         the end of the time span (exclusive)
+     * @return the list of entries
+     */
+    public List<Entry> getCreatedBetween(OffsetDateTime from, OffsetDateTime to) {
+        buildLookups();
+        long start = from.toEpochSecond();
+        long end = to.toEpochSecond();
+
+        // binary search for the first entry created at or after start
+        int low = 0;
+        int high = byCreation.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byCreation.get(mid).created < start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Entry> result = new ArrayList<>();
+        for (int i = low; i < byCreation.size() && byCreation.get(i).created < end; i++) {
+            result.add(byCreation.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the entries of all issues in the given state.
+     *
+     * @param state
+     *         the state, {@link State#ANY} returns all entries
+     * @return the list of entries
+     */
+    public List<Entry> getByState(State state) {
+        if (state == State.ANY) {
+            return getEntries();
+        }
+        buildLookups();
+        return byState.getOrDefault(state, Collections.emptyList());
+    }
+
+    /**
+     * Builds the lookup tables for the current entries, if needed.
+     */
+    private synchronized void buildLookups() {
+        if (byNumber != null) {
+            return;
+        }
+
+        Map<Integer, Entry> numbers = new HashMap<>();
+        Map<State, List<Entry>> states = new EnumMap<>(State.class);
+        for (Entry entry : entries) {
+            numbers.put(entry.number, entry);
+            if (entry.state != null) {
+                states.computeIfAbsent(entry.state, s -> new ArrayList<>()).add(entry);
+            }
+        }
+        List<Entry> creation = new ArrayList<>(entries);
+        creation.sort(Comparator.comparingLong(e -> e.created));
+
+        byCreation = creation;
+        byState = states;
+        byNumber = numbers;
+    }
+
+    /**
+     * Gets the index file belonging to the given dump.
+     *
+     * @param dump
+     *         the dump
+     * @return the index file
+     */
+    public static File getIndexFile(File dump) {
+        return new File(dump.getPath() + EXTENSION);
+    }
+
+    /**
+     * Writes the index to the given file.
+     *
+     * @param file
+     *         the index file
+     * @throws IOException
+     *         if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeInt(entry.number);
+                out.writeLong(entry.offset);
+                out.writeInt(entry.length);
+                out.writeLong(entry.created);
+                out.writeByte(entry.state == null ? -1 : entry.state.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Reads an index from the given file.
+     *
+     * @param file
+     *         the index file
+     * @return the index
+     * @throws IOException
+     *         if the file cannot be read or is no index file
+     */
+    public static DumpIndex read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a dump index or unsupported version: " + file);
+            }
+
+            State[] states = State.values();
+            DumpIndex index = new DumpIndex();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int number = in.readInt();
+                long offset = in.readLong();
+                int length = in.readInt();
+                long created = in.readLong();
+                int state = in.readByte();
+                index.entries.add(new Entry(number, offset, length, created, state < 0 ? null : states[state]));
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * The DumpReader reads issue dumps without a {@link GitHubRepository}, that is, without a local clone, without
+ * {@link GitWrapper}, and without access to the GitHub API. All {@link DumpFormat formats} and
+ * {@link DumpCompression compressions} are detected automatically.
+ *
+ * The returned issues and pull requests contain exactly the data stored in the dump: Commits are created from the
+ * dump only (one shared instance per hash) and are not backed by a git repository, so only the data available in the
+ * dump can be queried from them. Related issues are resolved among the issues read from the same dump.
+ */
+public class DumpReader {
+
+    /**
+     * Reads all issues from the given dump.
+     *
+     * @param dump
+     *         the dump
+     * @return the list of issues
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    public static List<IssueData> read(File dump) throws IOException {
+        return read(dump, url -> true);
+    }
+
+    /**
+     * Reads the issues of a single repository from the given dump. Only {@link DumpFormat#NORMALIZED normalized}
+     * dumps may contain several repositories, all other dumps are read completely.
+     *
+     * @param dump
+     *         the dump
+     * @param repoUrl
+     *         the URL of the repository on GitHub
+     * @return the list of issues
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    public static List<IssueData> read(File dump, String repoUrl) throws IOException {
+        String[] parts = repoUrl.replaceAll("\\.git$", "").split("[/:]");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Not a repository URL: " + repoUrl);
+        }
+        String user = parts[parts.length - 2];
+        String name = parts[parts.length - 1];
+
+        return read(dump, url -> NormalizedDumpProcessor.isSameRepo(url, user, name));
+    }
+
+    /**
+     * Reads the issues of the accepted repositories from the given dump.
+     *
+     * @param dump
+     *         the dump
+     * @param repositories
+     *         accepts the URLs of the repositories to read
+     * @return the list of issues
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    private static List<IssueData> read(File dump, Predicate<String> repositories) throws IOException {
+        List<IssueData> issues;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(DumpCompression.open(dump), StandardCharsets.UTF_8))) {
+            issues = read(reader, GitHubRepository.createOfflineGsonBuilder(), repositories);
+        }
+
+        Map<Integer, IssueData> dumpIssues = new HashMap<>();
+        issues.forEach(issue -> dumpIssues.put(issue.getNumber(), issue));
+        issues.forEach(issue -> {
+            issue.dumpIssues = dumpIssues;
+            issue.freeze();
+        });
+        return issues;
+    }
+
+    /**
+     * Reads the issues from a dump in any format. The issues are neither frozen nor linked to each other.
+     *
+     * @param reader
+     *         the reader positioned at the start of the (decompressed) dump
+     * @param gb
+     *         the GsonBuilder used to create the Gson instance that deserializes the issues
+     * @param repositories
+     *         accepts the URLs of the repositories to read from normalized dumps
+     * @return the list of issues contained in the dump
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    static List<IssueData> read(BufferedReader reader, GsonBuilder gb, Predicate<String> repositories) throws IOException {
+        Type type = new TypeToken<GitHubRepository.IssueDataCached>() {}.getType();
+        List<IssueData> issues = new ArrayList<>();
+
+        DumpFormat format = DumpFormat.detect(reader);
+        Gson gson = gb.create();
+        if (format == DumpFormat.NORMALIZED) {
+            issues.addAll(NormalizedDumpProcessor.read(reader, gson, gb, repositories));
+        } else if (format == DumpFormat.NDJSON) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    issues.add(gson.fromJson(line, type));
+                }
+            }
+        } else {
+            List<IssueData> list = gson.fromJson(reader, new TypeToken<List<GitHubRepository.IssueDataCached>>() {}.getType());
+            if (list != null) {
+                issues.addAll(list);
+            }
+        }
+
+        return issues;
+    }
+}
@@ -115,6 +115,8 @@ public abstract class EventData {
 
         @Expose(deserialize = false)
         Commit commit;
+        // the hash of the commit, which is yet to be resolved
+        transient String commitId;
 
         /**
          * The commit references.
@@ -85,10 +85,8 @@ class EventDataProcessor implements JsonDeserializer<EventData>, JsonSerializer<
                 return;
             }
 
-            result.commit = repo.getGithubCommit(hash.getAsString()).orElseGet(() -> {
-                LOG.warning("Found commit unknown to GitHub and local git repo: " + hash);
-                return null;
-            });
+            // the commit is resolved together with all other commits referenced in the issue
+            result.commitId = hash.getAsString();
         }
 
         @Override
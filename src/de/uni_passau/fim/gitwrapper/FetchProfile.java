@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A FetchProfile selects the sub-resources of issues that are requested from GitHub. Resources that are not included
+ * are neither requested nor stored, the corresponding lists of the issues are empty.
+ *
+ * @see GitHubRepository#setFetchProfile(FetchProfile)
+ */
+public class FetchProfile {
+
+    /**
+     * The sub-resources of issues.
+     */
+    public enum Resource {
+
+        /**
+         * The comments of issues.
+         */
+        COMMENTS,
+
+        /**
+         * The events of issues.
+         */
+        EVENTS,
+
+        /**
+         * The reviews of pull requests, including their comments.
+         */
+        REVIEWS,
+
+        /**
+         * The commits of pull requests and the commits referenced in issues.
+         */
+        COMMITS,
+
+        /**
+         * The profiles of users, that is, their names. Without them, users are only known by their usernames.
+         */
+        USERS,
+
+        /**
+         * The email addresses of users from their profiles, or guessed from their recent pushes (see
+         * {@link GitHubRepository#allowGuessing(boolean)}). Requires {@link #USERS}.
+         */
+        EMAILS
+    }
+
+    /**
+     * The profile including all resources.
+     */
+    public static final FetchProfile ALL = new FetchProfile(EnumSet.allOf(Resource.class));
+
+    private final Set<Resource> resources;
+
+    /**
+     * Creates a new FetchProfile including the given resources.
+     *
+     * @param resources
+     *         the resources to include
+     */
+    public FetchProfile(Collection<Resource> resources) {
+        this.resources = resources.isEmpty() ? EnumSet.noneOf(Resource.class) : EnumSet.copyOf(resources);
+    }
+
+    /**
+     * Parses a FetchProfile from a comma-separated list of resource names (case-insensitive), as produced by
+     * {@link #toString()}.
+     *
+     * @param resources
+     *         the list of resources, may be empty
+     * @return the FetchProfile
+     * @throws IllegalArgumentException
+     *         if the list contains an unknown resource
+     */
+    public static FetchProfile parse(String resources) {
+        List<Resource> included = new ArrayList<>();
+        for (String name : resources.split(",")) {
+            if (!name.trim().isEmpty()) {
+                included.add(Resource.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        return new FetchProfile(included);
+    }
+
+    /**
+     * Checks whether the given resource is included in this profile.
+     *
+     * @param resource
+     *         the resource
+     * @return {@code true} if the resource is requested from GitHub
+     */
+    public boolean includes(Resource resource) {
+        return resources.contains(resource);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FetchProfile)) return false;
+        return resources.equals(((FetchProfile) o).resources);
+    }
+
+    @Override
+    public int hashCode() {
+        return resources.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return resources.stream().map(resource -> resource.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(","));
+    }
+}
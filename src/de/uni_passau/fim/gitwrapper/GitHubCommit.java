@@ -18,6 +18,10 @@
  */
 package de.uni_passau.fim.gitwrapper;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 /**
  * A {@link Commit} available on GitHub, made in a {@link Repository}.
  */
@@ -26,6 +30,8 @@ public class GitHubCommit extends Commit {
     private String authorUsername;
     private String committerUsername;
     private boolean addedToPullRequest = false;
+    private final boolean local;
+    private List<String> parentIds;
 
     /**
      * Constructs a new {@link GitHubCommit} with the given <code>id</code> made in the <code>repo</code>.
@@ -37,6 +43,23 @@ public class GitHubCommit extends Commit {
      */
     GitHubCommit(Repository repo, String id) {
         super(repo, id);
+        this.local = false;
+    }
+
+    /**
+     * Constructs a new {@link GitHubCommit} of the local <code>repo</code>, whose data is set by the caller.
+     *
+     * @param repo
+     *         the {@link Repository} the {@link GitHubCommit} was made in
+     * @param id
+     *         the full ID of the {@link GitHubCommit}
+     * @param parentIds
+     *         the full IDs of the parents
+     */
+    GitHubCommit(Repository repo, String id, List<String> parentIds) {
+        super(repo, id);
+        this.local = true;
+        this.parentIds = parentIds;
     }
 
     /**
@@ -52,6 +75,7 @@ public class GitHubCommit extends Commit {
      */
     GitHubCommit(Commit commit, Repository repo, String id) {
         super(repo, id);
+        this.local = true;
 
         this.setMessage(commit.getMessage());
         this.setAuthor(commit.getAuthor());
@@ -102,6 +126,24 @@ public class GitHubCommit extends Commit {
         this.authorUsername = username;
     }
 
+    /**
+     * Returns whether the data of this commit was read from a local {@link Commit}, in which case the data from GitHub
+     * is not merged into it, except for the usernames.
+     *
+     * @return whether the commit is known locally
+     */
+    boolean isLocal() {
+        return local;
+    }
+
+    @Override
+    public Optional<List<Commit>> getParents() {
+        if (parentIds == null) {
+            return super.getParents();
+        }
+        return Optional.of(parentIds.stream().map(repo::getCommitUnchecked).collect(Collectors.toList()));
+    }
+
     /**
      * Returns whether this commit was added to the pull request of interest.
      *
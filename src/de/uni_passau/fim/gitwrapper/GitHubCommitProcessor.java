@@ -18,6 +18,8 @@
  */
 package de.uni_passau.fim.gitwrapper;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.time.OffsetDateTime;
 import java.util.Optional;
@@ -26,11 +28,14 @@ import java.util.logging.Logger;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import de.uni_passau.fim.gitwrapper.UserData.CommitUserData;
 
 /**
@@ -40,6 +45,8 @@ public class GitHubCommitProcessor implements JsonSerializer<GitHubCommit>, Json
 
     private static final Logger LOG = Logger.getLogger(CommitProcessor.class.getCanonicalName());
 
+    private static final JsonParser parser = new JsonParser();
+
     private final GitHubRepository repo;
 
     /**
@@ -52,6 +59,57 @@ public class GitHubCommitProcessor implements JsonSerializer<GitHubCommit>, Json
         this.repo = repo;
     }
 
+    /**
+     * Reads the parts of a commit returned by the commits API of GitHub that are needed to deserialize it, that is,
+     * the sha, the commit data (including the message), and the logins of author and committer. All other parts,
+     * above all the files with their patches, are skipped without being decoded. Broken data after the needed parts
+     * (e.g., ill-encoded characters in patches) is tolerated.
+     *
+     * @param json
+     *         the JSON String of the commit
+     * @return optionally the reduced commit, or an empty Optional if the needed parts cannot be read
+     */
+    static Optional<JsonObject> readCommit(String json) {
+        JsonObject commit = new JsonObject();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "sha":
+                    case "commit":
+                    case "author":
+                    case "committer":
+                        commit.add(name, parser.parse(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IOException | RuntimeException e) {
+            if (!commit.has("sha") || !commit.has("commit")) {
+                LOG.warning("Could not read commit: " + e);
+                return Optional.empty();
+            }
+            LOG.info("Malformed JSON String when reading commit " + commit.get("sha").getAsString() + ". Neglect the rest.");
+        }
+
+        if (!commit.has("sha") || !commit.has("commit")) {
+            LOG.warning("Incomplete commit data: " + json);
+            return Optional.empty();
+        }
+        if (!commit.has("author")) {
+            commit.add("author", JsonNull.INSTANCE);
+        }
+        if (!commit.has("committer")) {
+            commit.add("committer", JsonNull.INSTANCE);
+        }
+        return Optional.of(commit);
+    }
+
     @Override
     public JsonElement serialize(GitHubCommit src, Type typeOfSrc, JsonSerializationContext context) {
         JsonObject obj = new JsonObject();
@@ -120,14 +178,17 @@ public class GitHubCommitProcessor implements JsonSerializer<GitHubCommit>, Json
 
             ghc.setAuthor(json.getAsJsonObject().get("author").getAsJsonObject().get("name").getAsString());
             ghc.setAuthorMail(json.getAsJsonObject().get("author").getAsJsonObject().get("email").getAsString());
-            ghc.setCommitter(json.getAsJsonObject().get("committer").getAsJsonObject().get("name").getAsString());
-            ghc.setCommitterMail(json.getAsJsonObject().get("committer").getAsJsonObject().get("email").getAsString());
-
             if (!json.getAsJsonObject().get("author").getAsJsonObject().get("username").isJsonNull()) {
                 ghc.setAuthorUsername(json.getAsJsonObject().get("author").getAsJsonObject().get("username").getAsString());
             }
-            if (!json.getAsJsonObject().get("committer").getAsJsonObject().get("username").isJsonNull()) {
-                ghc.setCommitterUsername(json.getAsJsonObject().get("committer").getAsJsonObject().get("username").getAsString());
+
+            // plain commits are dumped without committer
+            if (json.getAsJsonObject().has("committer")) {
+                ghc.setCommitter(json.getAsJsonObject().get("committer").getAsJsonObject().get("name").getAsString());
+                ghc.setCommitterMail(json.getAsJsonObject().get("committer").getAsJsonObject().get("email").getAsString());
+                if (!json.getAsJsonObject().get("committer").getAsJsonObject().get("username").isJsonNull()) {
+                    ghc.setCommitterUsername(json.getAsJsonObject().get("committer").getAsJsonObject().get("username").getAsString());
+                }
             }
             return ghc;
 
@@ -22,14 +22,15 @@ package de.uni_passau.fim.gitwrapper;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.stream.JsonWriter;
 import com.google.gson.reflect.TypeToken;
 import de.uni_passau.fim.processexecutor.ProcessExecutor;
 import io.gsonfire.GsonFireBuilder;
-import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -38,19 +39,23 @@ import org.apache.http.impl.client.HttpClients;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.logging.Level;
+import java.util.function.IntConsumer;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -63,12 +68,22 @@ public class GitHubRepository extends Repository {
 
     private static final Logger LOG = Logger.getLogger(GitHubRepository.class.getCanonicalName());
 
+    /**
+     * The default number of entries kept in each of the caches of commit and issue lookups.
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 100000;
+
     private static final Set<Token> tokens = new HashSet<>();
     private static final Queue<Thread> tokenWaitList = new ConcurrentLinkedQueue<>();
 
     private final Gson gson;
     private final CloseableHttpClient hc;
     private IssueDataProcessor issueProcessor;
+    private final UserDataProcessor userProcessor = new UserDataProcessor(this);
+
+    private static final String PULL_REQUEST_REMOTE = "pr";
+    private static final String PRELOAD_FORMAT = "%H%x00%P%x00%an%x00%ae%x00%aI%x00%cn%x00%ce%x00%cI%x00%B";
+    private static final int PRELOAD_FIELDS = 9;
 
     private final Pattern commitPattern = Pattern.compile("([0-9a-f]{40})\n(.*?)\nhash=", Pattern.DOTALL);
     private final String apiBaseURL;
@@ -76,12 +91,30 @@ public class GitHubRepository extends Repository {
     private final String repoUser;
     private List<PullRequest> pullRequests;
     private List<IssueData> issues;
-    private Map<String, GitHubCommit> unknownCommits = new ConcurrentHashMap<>();
-    private Map<String, Optional<GitHubCommit>> checkedHashes = new ConcurrentHashMap<>();
+    private Map<String, GitHubCommit> commits = new ConcurrentHashMap<>();
+    private BoundedCache<String, CompletableFuture<Optional<GitHubCommit>>> commitLookups = new BoundedCache<>("commit lookups", DEFAULT_CACHE_CAPACITY);
+    private BoundedCache<Integer, CompletableFuture<Boolean>> issueLookups = new BoundedCache<>("issue lookups", DEFAULT_CACHE_CAPACITY);
+    private Set<Integer> listedIssues = ConcurrentHashMap.newKeySet();
+    private Map<Integer, List<ReferencedLink<Integer>>> crossReferences = new ConcurrentHashMap<>();
+    private final AtomicReference<LinkResolution> linkResolution = new AtomicReference<>(LinkResolution.EAGER);
+    private final AtomicReference<FetchProfile> fetchProfile = new AtomicReference<>(FetchProfile.ALL);
+    private final LocalObjectIndex localObjects;
+    private volatile CommitStore commitStore;
+    private volatile UserStore userStore;
+    private volatile MissingResources missingResources = new MissingResources();
+    private volatile String gitCommand = "git";
+    private CatFileProcess catFile;
+    private CommitGraph commitGraph;
+    private boolean commitGraphRead;
 
     private final AtomicBoolean allowGuessing = new AtomicBoolean(false);
     private final AtomicBoolean sleepOnApiLimit = new AtomicBoolean(true);
     private final AtomicBoolean offline = new AtomicBoolean(false);
+    private final AtomicBoolean deferPullRequestDetails = new AtomicBoolean(false);
+    private final AtomicBoolean useTimeline = new AtomicBoolean(false);
+    private final AtomicBoolean useCatFile = new AtomicBoolean(false);
+    private final AtomicBoolean usePullRequestRefs = new AtomicBoolean(false);
+    private final AtomicBoolean useLocalPullRequestCommits = new AtomicBoolean(false);
 
     private final ForkJoinPool threadPool;
 
@@ -166,20 +199,21 @@ public class GitHubRepository extends Repository {
      *         (see  <a href="https://github.com/settings/tokens">https://github.com/settings/tokens</a>) for
      *         information about creating such tokens)
      * @param issueCache
-     *         the File containing the issue cache
+     *         the File containing the issue cache, the sidecar file of missing resources next to it is read as well
      * @throws FileNotFoundException
      *         if {@code issueCache} is not found
      * @see #serialize(Object)
+     * @see MissingResources#getFile(File)
      */
     public GitHubRepository(String url, File dir, GitWrapper git, List<String> oauthToken, File issueCache) throws FileNotFoundException {
         this(url, dir, git, oauthToken);
 
         if (issueProcessor == null) {
-            issueProcessor = new IssueDataProcessor(this, apiBaseURL + "/issues/");
+            issueProcessor = new IssueDataProcessor(this);
         }
         GsonBuilder gb = new GsonFireBuilder().createGsonBuilder();
-        gb.registerTypeAdapter(Commit.class, new CommitProcessor(this, new UserDataProcessor(this)));
-        gb.registerTypeAdapter(GitHubCommit.class, new GitHubCommitProcessor(this, new UserDataProcessor(this)));
+        gb.registerTypeAdapter(Commit.class, new CommitProcessor(this, userProcessor));
+        gb.registerTypeAdapter(GitHubCommit.class, new GitHubCommitProcessor(this, userProcessor));
         gb.registerTypeAdapter(IssueDataCached.class, issueProcessor);
         gb.registerTypeAdapter(ReferencedLink.class, new ReferencedLinkProcessor(this));
         gb.registerTypeAdapter(EventData.class, new EventDataProcessor());
@@ -187,15 +221,24 @@ public class GitHubRepository extends Repository {
         gb.registerTypeAdapter(OffsetDateTime.class, new OffsetDateTimerProcessor());
         gb.setDateFormat("yyyy-MM-dd HH:mm:ss");
         gb.serializeNulls();
-        Gson tempGson = gb.create();
 
         // read cache and fill up missing issue data
         offline.set(true);
-        List<IssueData> issues = new ArrayList<>(tempGson.fromJson(new BufferedReader(new FileReader(issueCache)), new TypeToken<List<IssueDataCached>>() {}.getType()));
+        List<IssueData> issues = readIssueCache(gb, issueCache);
         offline.set(false);
         issueProcessor.addCache(issues);
         issues.forEach(IssueData::freeze);
 
+        // remember the resources that were missing when the cache was written
+        File missing = MissingResources.getFile(issueCache);
+        if (missing.exists()) {
+            try {
+                missingResources = MissingResources.read(missing);
+            } catch (IOException e) {
+                LOG.warning("Could not read missing resources " + missing + ": " + e);
+            }
+        }
+
         this.issues = issues;
 //        getPullRequests();
     }
@@ -224,16 +267,30 @@ public class GitHubRepository extends Repository {
 
         this.repoName = getRepoNameFromUrl(this.getUrl());
         this.repoUser = getRepoUserFromUrl(this.getUrl());
+        this.localObjects = new LocalObjectIndex(dir);
 
         synchronized (tokens) {
             oauthToken.stream().map(Token::new).forEach(tokens::add);
         }
 
         if (issueProcessor == null) {
-            issueProcessor = new IssueDataProcessor(this, apiBaseURL + "/issues/");
+            issueProcessor = new IssueDataProcessor(this);
         }
+        gson = createGsonBuilder().create();
+
+        hc = HttpClients.createDefault();
+
+        threadPool = new ForkJoinPool(oauthToken.size());
+    }
+
+    /**
+     * Creates a new GsonBuilder configured with all processors needed to convert GitHub data and dumps of this
+     * repository. Additional type adapters registered on the returned builder take precedence over the default ones.
+     *
+     * @return the configured GsonBuilder
+     */
+    GsonBuilder createGsonBuilder() {
         GsonFireBuilder gfb = new GsonFireBuilder();
-        UserDataProcessor userProcessor = new UserDataProcessor(this);
         ReferencedLinkProcessor referencedLinkProcessor = new ReferencedLinkProcessor(this);
         gfb.registerPostProcessor(IssueData.class, issueProcessor);
         gfb.registerPostProcessor(ReferencedLink.class, referencedLinkProcessor);
@@ -253,11 +310,64 @@ public class GitHubRepository extends Repository {
         gb.registerTypeAdapter(OffsetDateTime.class, new OffsetDateTimerProcessor());
         gb.setDateFormat("yyyy-MM-dd HH:mm:ss");
         gb.serializeNulls();
-        gson = gb.create();
+        return gb;
+    }
 
-        hc = HttpClients.createDefault();
+    /**
+     * Creates a new GsonBuilder configured to read dumps without a repository. Issues are taken from the dump as they
+     * are, commits are created from the data in the dump only, and neither git nor the GitHub API are queried.
+     *
+     * @return the configured GsonBuilder
+     */
+    static GsonBuilder createOfflineGsonBuilder() {
+        GsonBuilder gb = new GsonFireBuilder().createGsonBuilder();
+        GitHubCommitProcessor commitProcessor = new GitHubCommitProcessor(null, null);
+        Map<String, GitHubCommit> commits = new ConcurrentHashMap<>();
+
+        // share one instance per commit, as there is no repository keeping track of them
+        JsonDeserializer<GitHubCommit> sharedCommits = (json, typeOfT, context) -> {
+            JsonElement hash = json.getAsJsonObject().get("hash");
+            if (hash == null) {
+                return commitProcessor.deserialize(json, typeOfT, context);
+            }
+            return commits.computeIfAbsent(hash.getAsString(), h -> commitProcessor.deserialize(json, typeOfT, context));
+        };
+        gb.registerTypeAdapter(Commit.class, sharedCommits);
+        gb.registerTypeAdapter(GitHubCommit.class, sharedCommits);
+        gb.registerTypeAdapter(IssueDataCached.class, new IssueDataProcessor(null));
+        gb.registerTypeAdapter(ReferencedLink.class, new ReferencedLinkProcessor(null));
+        gb.registerTypeAdapter(EventData.class, new EventDataProcessor());
+        gb.registerTypeAdapter(ReviewData.class, new ReviewDataProcessor());
+        gb.registerTypeAdapter(OffsetDateTime.class, new OffsetDateTimerProcessor());
+        gb.setDateFormat("yyyy-MM-dd HH:mm:ss");
+        gb.serializeNulls();
+        return gb;
+    }
 
-        threadPool = new ForkJoinPool(oauthToken.size());
+    /**
+     * Reads the issues from a dump, which may either be a JSON array, newline-delimited JSON, or a normalized dump.
+     * Compressed dumps are detected and decompressed on the fly.
+     *
+     * @param gb
+     *         the GsonBuilder used to create the Gson instance that deserializes the issues
+     * @param issueCache
+     *         the File containing the issue cache
+     * @return the list of issues contained in the dump
+     * @throws FileNotFoundException
+     *         if {@code issueCache} is not found
+     * @see DumpFormat
+     * @see DumpCompression
+     */
+    private List<IssueData> readIssueCache(GsonBuilder gb, File issueCache) throws FileNotFoundException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(DumpCompression.open(issueCache), StandardCharsets.UTF_8))) {
+            return DumpReader.read(reader, gb, url -> NormalizedDumpProcessor.isSameRepo(url, repoUser, repoName));
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            LOG.severe("Could not read issue cache " + issueCache + ": " + e);
+        }
+
+        return new ArrayList<>();
     }
 
     /**
@@ -363,6 +473,13 @@ public class GitHubRepository extends Repository {
                                     .collect(Collectors.toList());
                     data = threadPool.submit(converter).join();
 
+                    list.forEach(element -> listedIssues.add(element.getAsJsonObject().get("number").getAsInt()));
+
+                    // resolve the commits and issues referenced in all new issues at once
+                    if (getLinkResolution() == LinkResolution.EAGER) {
+                        resolveLinks(issueProcessor.getCache().values());
+                    }
+
                     // freeze the issues
                     threadPool.submit(() -> data.parallelStream().forEach(IssueData::freeze));
 
@@ -433,100 +550,147 @@ public class GitHubRepository extends Repository {
         return getJSONStringFromPath("/pulls/" + issue.number + "/reviews?state=all").map(json -> {
             try {
                 List<ReviewData> reviews = gson.fromJson(json, new TypeToken<ArrayList<ReviewData>>() {}.getType());
+                return joinReviewComments(issue, reviews);
+            } catch (JsonSyntaxException e) {
+                LOG.warning("Encountered invalid JSON: " + json);
+                return null;
+            }
+        });
+    }
 
-                /* As the reviews extracted from the GitHub API not only contain reviews, but also treats answers
-                 * (that is, comments) to reviews as separate reviews, we need to remove those reviews which are just
-                 * replies to other reviews.*/
-                Optional<List<JsonElement>> reviewComments = getReviewComments(issue);
-                List<ReviewData> actualReviews = reviews.stream().filter(review -> {
-                    int reviewId = review.getReviewId();
-
-                    List<JsonElement> relatedComments = new ArrayList<JsonElement>();
-
-                    if (reviewComments.isPresent()) {
-                        // Get related comments, that is, comments that belong to the review of interest
-                        relatedComments = reviewComments.get().stream().filter(reviewComment -> {
-                            JsonObject object = gson.fromJson(reviewComment, JsonElement.class).getAsJsonObject();
-                            if (!object.get("pull_request_review_id").isJsonNull()) {
-                                int refReviewId = object.get("pull_request_review_id").getAsInt();
-                                return reviewId == refReviewId;
-                            } else {
-                                LOG.info("Review comments API for pull request " + issue.number + " not accessible.");
-                                return false;
-                            }
-                        }).collect(Collectors.toList());
-                    }
+    /**
+     * Removes the replies from the given Reviews of a Pull Request and adds the Review Comments to the actual
+     * Reviews.
+     *
+     * @param issue
+     *         the parent IssueData
+     * @param reviews
+     *         the Reviews as returned by GitHub
+     * @return the list of actual Reviews
+     */
+    List<ReviewData> joinReviewComments(IssueData issue, List<ReviewData> reviews) {
+        List<JsonElement> reviewComments = getReviewComments(issue).orElse(Collections.emptyList());
+
+        // index the review comments by review once
+        Map<Integer, List<JsonObject>> commentsByReview = new HashMap<>();
+        boolean inaccessible = false;
+        for (JsonElement reviewComment : reviewComments) {
+            JsonObject object = reviewComment.getAsJsonObject();
+            if (object.get("pull_request_review_id").isJsonNull()) {
+                inaccessible = true;
+                continue;
+            }
+            commentsByReview.computeIfAbsent(object.get("pull_request_review_id").getAsInt(), id -> new ArrayList<>()).add(object);
+        }
+        if (inaccessible && !reviews.isEmpty()) {
+            LOG.info("Review comments API for pull request " + issue.number + " not accessible.");
+        }
 
-                    if (relatedComments.size() < 1) {
-                        // If there are no related comments for the review of interest, it actually is a review and not a comment
-                        return true;
-                    } else {
-                        // As there are related comments, check if there are comments that are *not* a reply.
-                        List<JsonElement> nonReplyComments = relatedComments.stream().filter(relatedComment -> {
-                            JsonElement inReplyTo = relatedComment.getAsJsonObject().get("in_reply_to_id");
-                            return (inReplyTo == null); // return (isNoReply);
-                        }).collect(Collectors.toList());
-                        // Only if there is, at least, one comment that is not a reply, we actually have found a review
-                        return nonReplyComments.size() > 0;
-                    }
-                }).collect(Collectors.toList());
-
-                // Get the review comments for all actual reviews
-                actualReviews = actualReviews.stream().map(review -> {
-                    int reviewId = review.getReviewId();
-
-                    // Build a map of comment ids to review ids. This is necessary as the review id of the comment may point to an invalid review.
-                    ConcurrentHashMap<Integer,Integer> commentReviewMap = new ConcurrentHashMap<Integer,Integer>();
-
-                    // Get related comments, that is, comments that belong to the review of interest
-                    List<JsonElement> relatedComments = new ArrayList<JsonElement>();
-
-                    if (reviewComments.isPresent()) {
-                        relatedComments = reviewComments.get().stream().filter(reviewComment -> {
-                            JsonObject reviewCommentObject = gson.fromJson(reviewComment, JsonElement.class).getAsJsonObject();
-                            Integer refReviewId;
-                            if (!reviewCommentObject.get("pull_request_review_id").isJsonNull()) {
-                                refReviewId = reviewCommentObject.get("pull_request_review_id").getAsInt();
-                            } else {
-                                return false;
-                            }
+        /* As the reviews extracted from the GitHub API not only contain reviews, but also treats answers
+         * (that is, comments) to reviews as separate reviews, we need to remove those reviews which are just
+         * replies to other reviews. If there are no related comments for a review, it actually is a review and not
+         * a comment. Otherwise, only if there is, at least, one comment that is not a reply, we actually have found
+         * a review. */
+        List<ReviewData> actualReviews = reviews.stream().filter(review -> {
+            List<JsonObject> relatedComments = commentsByReview.getOrDefault(review.getReviewId(), Collections.emptyList());
+            return relatedComments.isEmpty() || relatedComments.stream().anyMatch(comment -> comment.get("in_reply_to_id") == null);
+        }).collect(Collectors.toList());
+        Set<Integer> actualReviewIds = actualReviews.stream().map(ReviewData::getReviewId).collect(Collectors.toSet());
+
+        /* Assign the review comments to the actual reviews in a single pass: A comment belongs to the review it
+         * points to and, if it is a reply, to the reviews of the comment it replies to. This is necessary as the
+         * review id of the comment may point to an invalid review. */
+        Type type = new TypeToken<ReferencedLink<ReviewCommentData>>() {}.getType();
+        Map<Integer, Set<Integer>> reviewsByComment = new HashMap<>();
+        Map<Integer, List<ReferencedLink<ReviewCommentData>>> linksByReview = new HashMap<>();
+        for (JsonElement reviewComment : reviewComments) {
+            JsonObject object = reviewComment.getAsJsonObject();
+            if (object.get("pull_request_review_id").isJsonNull()) {
+                continue;
+            }
 
-                            if (reviewId == refReviewId) {
-                                commentReviewMap.put(reviewCommentObject.get("id").getAsInt(), reviewCommentObject.get("pull_request_review_id").getAsInt());
-                                return true;
-                            } else {
-                                JsonElement inReplyTo = reviewCommentObject.get("in_reply_to_id");
-
-                                // If this is not a reply, drop this comment, as the comment does not belong to the review of interest
-                                if(inReplyTo == null) {
-                                    return false;
-                                } else {
-
-                                    // Comment is a reply. Now we need to check whether the referenced comment belongs to the review of interest.
-                                    refReviewId = commentReviewMap.get(inReplyTo.getAsInt());
-
-                                    if (refReviewId != null && refReviewId == reviewId) {
-                                        commentReviewMap.put(reviewCommentObject.get("id").getAsInt(), refReviewId);
-                                        return true;
-                                    } else {
-                                        return false;
-                                    }
-                                }
-                            }
-                        }).collect(Collectors.toList());
-                    }
+            Set<Integer> owners = new HashSet<>();
+            int refReviewId = object.get("pull_request_review_id").getAsInt();
+            if (actualReviewIds.contains(refReviewId)) {
+                owners.add(refReviewId);
+            }
+            JsonElement inReplyTo = object.get("in_reply_to_id");
+            if (inReplyTo != null) {
+                owners.addAll(reviewsByComment.getOrDefault(inReplyTo.getAsInt(), Collections.emptySet()));
+            }
+            if (owners.isEmpty()) {
+                continue;
+            }
 
-                    List<ReferencedLink<ReviewCommentData>> relatedReviewComments = relatedComments.stream().map(comment -> {
-                        String c = gson.toJson(comment);
-                        ReferencedLink<ReviewCommentData> r = gson.fromJson(c, new TypeToken<ReferencedLink<ReviewCommentData>>() {}.getType());
-                        return r;
-                    }).collect(Collectors.toList());
+            reviewsByComment.put(object.get("id").getAsInt(), owners);
+            ReferencedLink<ReviewCommentData> link = gson.fromJson(object, type);
+            owners.forEach(owner -> linksByReview.computeIfAbsent(owner, id -> new ArrayList<>()).add(link));
+        }
 
-                    review.setReviewComments(Optional.of(relatedReviewComments).orElse(Collections.emptyList()));
-                    return review;
-                }).collect(Collectors.toList());
+        actualReviews.forEach(review ->
+                review.setReviewComments(linksByReview.getOrDefault(review.getReviewId(), new ArrayList<>())));
+        return actualReviews;
+    }
 
-                return actualReviews;
+    /**
+     * Returns the Timeline of an Issue, which contains its Comments, Events, and Reviews, the Commits of a Pull
+     * Request, and the Issues referencing it, in a single paginated stream. Review Comments are not part of the
+     * Timeline and the Commits lack the usernames of their authors and committers.
+     *
+     * @param issue
+     *         the IssueData
+     * @return optionally the Timeline or an empty Optional if an error occurred
+     */
+    Optional<Timeline> getTimeline(IssueData issue) {
+        return getJSONStringFromPath("/issues/" + issue.number + "/timeline").map(json -> {
+            try {
+                List<JsonObject> items = gson.fromJson(json, new TypeToken<ArrayList<JsonObject>>() {}.getType());
+                Timeline timeline = new Timeline();
+                for (JsonObject item : items) {
+                    JsonElement event = item.get("event");
+                    switch (event == null || event.isJsonNull() ? "" : event.getAsString()) {
+                        case "commented":
+                            timeline.comments.add(gson.fromJson(item, ReferencedLink.class));
+                            break;
+                        case "reviewed":
+                            timeline.reviews.add(gson.fromJson(item, ReviewData.class));
+                            break;
+                        case "committed":
+                            // bring the commit into the shape of the commits API
+                            JsonObject commitData = new JsonObject();
+                            commitData.add("author", item.get("author"));
+                            commitData.add("committer", item.get("committer"));
+                            commitData.add("message", item.get("message"));
+                            JsonObject commit = new JsonObject();
+                            commit.add("sha", item.get("sha"));
+                            commit.add("commit", commitData);
+                            commit.add("author", JsonNull.INSTANCE);
+                            commit.add("committer", JsonNull.INSTANCE);
+                            timeline.commits.add(gson.fromJson(commit, GitHubCommit.class));
+                            break;
+                        case "cross-referenced":
+                            JsonObject source = item.getAsJsonObject("source");
+                            if (source == null || !source.has("issue")) {
+                                break;
+                            }
+                            JsonObject sourceIssue = source.getAsJsonObject("issue");
+                            JsonElement sourceRepo = sourceIssue.get("repository_url");
+                            if (sourceRepo != null && apiBaseURL.equalsIgnoreCase(sourceRepo.getAsString())) {
+                                timeline.referencedBy.add(new ReferencedLink<>(sourceIssue.get("number").getAsInt(),
+                                        gson.fromJson(item.get("actor"), UserData.class),
+                                        gson.fromJson(item.get("created_at"), OffsetDateTime.class)));
+                            }
+                            break;
+                        case "line-commented":
+                        case "commit-commented":
+                            // review comments are requested with the reviews, commit comments are not part of issues
+                            break;
+                        default:
+                            timeline.events.add(gson.fromJson(item, EventData.class));
+                            break;
+                    }
+                }
+                return timeline;
             } catch (JsonSyntaxException e) {
                 LOG.warning("Encountered invalid JSON: " + json);
                 return null;
@@ -534,7 +698,24 @@ public class GitHubRepository extends Repository {
         });
     }
 
-     /**
+    /**
+     * Records that the given issues reference an issue, as cross-referenced by GitHub. The references are added to
+     * the related issues of the referencing issues when their links are resolved.
+     *
+     * @param issue
+     *         the referenced issue
+     * @param referencedBy
+     *         the referencing issues
+     * @see #linkIssues(Collection)
+     */
+    void addCrossReferences(IssueData issue, List<ReferencedLink<Integer>> referencedBy) {
+        for (ReferencedLink<Integer> link : referencedBy) {
+            crossReferences.computeIfAbsent(link.target, number -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(new ReferencedLink<>(issue.number, link.user, link.referenced_at));
+        }
+    }
+
+    /**
      * Returns a List of Comments for all Reviews of a Pull Request.
      *
      * @param issue
@@ -600,11 +781,104 @@ public class GitHubRepository extends Repository {
      */
     public Optional<List<Commit>> getMergeCommitsBetween(Commit start, Commit end) {
         return getMergeCommits().map(list -> list.stream()
-                .filter(c -> start == null || c.equals(start) || c.checkAncestry(start).orElse(false))
-                .filter(c -> end == null || c.equals(end) || end.checkAncestry(c).orElse(true))
+                .filter(c -> start == null || c.equals(start) || checkAncestry(c, start).orElse(false))
+                .filter(c -> end == null || c.equals(end) || checkAncestry(end, c).orElse(true))
                 .collect(Collectors.toList()));
     }
 
+    /**
+     * Checks whether {@code commit} is an ancestor of {@code of} just like {@link Commit#checkAncestry(Reference)},
+     * but answers from the {@link CommitGraph} of the repository instead of calling git, if both are commits in the
+     * graph.
+     *
+     * @param commit
+     *         the possible ancestor
+     * @param of
+     *         the possible descendant
+     * @return optionally whether {@code commit} is an ancestor of {@code of}, or an empty Optional if the check failed
+     */
+    Optional<Boolean> checkAncestry(Commit commit, Reference of) {
+        if (of instanceof Commit) {
+            Optional<Boolean> ancestry = getCommitGraph().flatMap(graph -> graph.isAncestor(commit.getId(), of.getId()));
+            if (ancestry.isPresent()) {
+                return ancestry;
+            }
+        }
+        return commit.checkAncestry(of);
+    }
+
+    /**
+     * Determines the merge base of the given commits, using the {@link CommitGraph} of the repository if both commits
+     * are part of it, and git otherwise.
+     *
+     * @param commit
+     *         the first commit
+     * @param other
+     *         the second reference
+     * @return optionally the merge base, or an empty Optional if there is none or the operation failed
+     */
+    Optional<Commit> getMergeBase(Commit commit, Reference other) {
+        if (other instanceof Commit) {
+            Optional<String> mergeBase = getCommitGraph().flatMap(graph -> graph.getMergeBase(commit.getId(), other.getId()));
+            if (mergeBase.isPresent()) {
+                return mergeBase.map(this::getCommitUnchecked);
+            }
+        }
+        return commit.getMergeBase(other);
+    }
+
+    /**
+     * Gets the commits of the given pull request from the {@link CommitGraph} of the local repository, that is, the
+     * commits reachable from its head but not from its base, instead of requesting them from GitHub.
+     *
+     * @param pr
+     *         the pull request
+     * @return optionally the commits, parents before their children, or an empty Optional if the local computation
+     *         is disabled, head or base are not loaded, or the commits cannot be determined locally, e.g., because
+     *         the history was rewritten
+     * @see #useLocalPullRequestCommits(boolean)
+     */
+    Optional<List<GitHubCommit>> getLocalPullRequestCommits(PullRequestData pr) {
+        // deferred details are not loaded here, as this would cost the API request saved
+        RefData head = pr.head;
+        RefData base = pr.base;
+        if (!useLocalPullRequestCommits() || head == null || base == null || head.sha == null || base.sha == null) {
+            return Optional.empty();
+        }
+
+        // a pull request has at least one commit, so an empty range means that the base was moved past the head
+        Optional<List<String>> ids = getCommitGraph().flatMap(graph -> graph.getCommitsBetween(base.sha, head.sha))
+                .filter(list -> !list.isEmpty());
+        if (!ids.isPresent()) {
+            LOG.fine(String.format("Could not determine the commits of PR %d locally", pr.number));
+            return Optional.empty();
+        }
+
+        loadLocalCommits(ids.get());
+        return ids.map(list -> list.stream().map(this::getGHCommitUnchecked).collect(Collectors.toList()));
+    }
+
+    /**
+     * Gets the graph of the commits of the local repository, reading it on first use.
+     *
+     * @return optionally the graph, or an empty Optional if it could not be read
+     */
+    private synchronized Optional<CommitGraph> getCommitGraph() {
+        if (!commitGraphRead) {
+            commitGraph = CommitGraph.read(gitCommand, getDir()).orElse(null);
+            commitGraphRead = true;
+        }
+        return Optional.ofNullable(commitGraph);
+    }
+
+    /**
+     * Discards the graph of the commits of the local repository, so that it is read again on next use.
+     */
+    private synchronized void resetCommitGraph() {
+        commitGraph = null;
+        commitGraphRead = false;
+    }
+
     /**
      * Gets the list of pull requests from GitHub, if it is not already cached.
      */
@@ -615,58 +889,103 @@ public class GitHubRepository extends Repository {
         }
         LOG.fine("Building new list of PRs");
         getIssues(true).ifPresent(issues -> {
+            boolean fetched = usePullRequestRefs() && fetchPullRequestRefs();
+            if (fetched) {
+                // the heads of the PRs are found only if the commit graph and the packs are read after the fetch
+                localObjects.refresh();
+                resetCommitGraph();
+            }
             Callable<List<PullRequest>> converter = () -> issues.parallelStream().filter(x -> x.isPullRequest).map(x -> (PullRequestData) x).map(pr -> {
-                State state = State.getPRState(pr.state, pr.merged_at != null);
-
-                // if the fork was deleted and the PR was rejected or is still open, we cannot get verify the
-                // commits, so the PR is dropped
-                if (pr.head.repo == null && State.includes(state, State.UNMERGED)) {
-                    LOG.warning(String.format("PR %d has no fork repo and was not merged, therefore it was dropped!", pr.number));
+                // without head and base, neither the commits nor the target of the PR can be determined
+                if (pr.getHead() == null || pr.getBase() == null) {
+                    LOG.warning(String.format("Could not get head and base of PR %d, therefore it was dropped!", pr.number));
                     return null;
                 }
 
-                // if the source branch on the fork was deleted and the PR was declined we also cannot get verify
-                // the commits, so the PR is dropped as well
-                if (pr.head.repo != null &&
-                        !addRemote(pr.head.repo.full_name, pr.head.repo.clone_url) &&
-                        !getBranch(pr.head.repo.full_name + "/" + pr.head.ref).isPresent()) {
-                    LOG.warning(String.format("The source branch of PR %d was deleted and the PR was not merged, therefore it was dropped!", pr.number));
-                    return null;
+                State state = State.getPRState(pr.state, pr.getMergedDate() != null);
+
+                // the heads of all PRs were fetched from the base repository, so forks are not needed
+                if (!fetched) {
+                    // if the fork was deleted and the PR was rejected or is still open, we cannot get verify the
+                    // commits, so the PR is dropped
+                    if (pr.getHead().repo == null && State.includes(state, State.UNMERGED)) {
+                        LOG.warning(String.format("PR %d has no fork repo and was not merged, therefore it was dropped!", pr.number));
+                        return null;
+                    }
+
+                    // if the source branch on the fork was deleted and the PR was declined we also cannot get verify
+                    // the commits, so the PR is dropped as well
+                    if (pr.getHead().repo != null) {
+                        boolean added = addRemote(pr.head.repo.full_name, pr.head.repo.clone_url);
+                        // the fetched objects of the fork may be stored in a new pack
+                        localObjects.refresh();
+                        if (!added && !getBranch(pr.head.repo.full_name + "/" + pr.head.ref).isPresent()) {
+                            LOG.warning(String.format("The source branch of PR %d was deleted and the PR was not merged, therefore it was dropped!", pr.number));
+                            return null;
+                        }
+                    }
                 }
 
                 // we still can't find the tip, this probably means the history was rewritten and the refs are invalid
                 // nothing we can do but drop the PR
-                if ( /* TODO super ?*/ !super.getCommit(pr.head.sha).isPresent()) {
+                if ( /* TODO super ?*/ !getLocalCommit(pr.getHead().sha).isPresent()) {
                     LOG.warning(String.format("The history of the repo does not include the merged PR %d, therefore it was dropped!", pr.number));
                     return null;
                 }
 
-                Reference target = getBranch("origin/" + pr.base.ref).orElse(null);
-
-                Optional<String> commitData = getJSONStringFromPath("/pulls/" + pr.number + "/commits");
-                //noinspection unchecked
-                List<Commit> commits = commitData.map(cd ->
-                        ((ArrayList<RefData>) gson.fromJson(cd, new TypeToken<ArrayList<RefData>>() {}.getType())).stream().map(c ->
-                                getCommit(c.sha).orElseGet(() -> {
-                                    LOG.warning(String.format("Invalid commit %s from PR %d", c.sha, pr.number));
-                                    return null;
-                                }))
-                            .filter(Objects::nonNull).collect(Collectors.toList()))
-                    .orElseGet(() -> {
-                        LOG.warning(String.format("Could not get commits for PR %d", pr.number));
-                        return Collections.emptyList();
-                    });
-
-                if (pr.head.repo == null) {
+                Reference target = getBranch("origin/" + pr.getBase().ref).orElse(null);
+
+                List<Commit> commits = getLocalPullRequestCommits(pr).<List<Commit>>map(ArrayList::new).orElseGet(() -> {
+                    Optional<String> commitData = getJSONStringFromPath("/pulls/" + pr.number + "/commits");
+                    //noinspection unchecked
+                    Optional<List<RefData>> refs = commitData.map(cd ->
+                            (ArrayList<RefData>) gson.fromJson(cd, new TypeToken<ArrayList<RefData>>() {}.getType()));
+                    refs.ifPresent(list -> loadLocalCommits(list.stream().map(c -> c.sha).collect(Collectors.toList())));
+                    return refs.map(list -> list.stream().map(c ->
+                                    getCommit(c.sha).orElseGet(() -> {
+                                        LOG.warning(String.format("Invalid commit %s from PR %d", c.sha, pr.number));
+                                        return null;
+                                    }))
+                                .filter(Objects::nonNull).collect(Collectors.toList()))
+                        .orElseGet(() -> {
+                            LOG.warning(String.format("Could not get commits for PR %d", pr.number));
+                            return Collections.emptyList();
+                        });
+                });
+
+                if (fetched) {
+                    return new PullRequest(this, state, target, commits, pr, PULL_REQUEST_REMOTE + "/" + pr.number);
+                }
+                if (pr.getHead().repo == null) {
                     LOG.warning(String.format("PR %d has no fork repo", pr.number));
                     return new PullRequest(this, State.MERGED, target, commits, pr);
                 }
                 return new PullRequest(this, state, target, commits, pr);
             }).filter(Objects::nonNull).sorted(Comparator.comparing(pr -> pr.getIssue().created_at)).collect(Collectors.toList());
             pullRequests = threadPool.submit(converter).join();
+
+            // remotes of forks may have been fetched, so the commit graph has to be read again
+            resetCommitGraph();
         });
     }
 
+    /**
+     * Fetches the heads of all pull requests from the base repository on GitHub to {@code refs/remotes/pr/<number>}
+     * with a single call of git.
+     *
+     * @return whether the fetch succeeded
+     * @see #usePullRequestRefs(boolean)
+     */
+    private boolean fetchPullRequestRefs() {
+        Optional<ProcessExecutor.ExecRes> fetch = getGit().exec(getDir(), "fetch", "origin",
+                "+refs/pull/*/head:refs/remotes/" + PULL_REQUEST_REMOTE + "/*");
+        if (!fetch.isPresent() || getGit().failed(fetch.get())) {
+            LOG.warning(String.format("Could not fetch the heads of the PRs of %s, adding the forks instead", this));
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Gets a List of all Commits before a given Date on a branch.
      *
@@ -725,6 +1044,27 @@ public class GitHubRepository extends Repository {
      * @return optionally, a string representing the JSON result, or an empty Optional, if the call failed
      */
     Optional<String> getJSONStringFromURL(String urlString) {
+        return getJSONStringFromURL(urlString, status -> {});
+    }
+
+    /**
+     * Returns a string of the JSON data returned from the GitHub API called with the given URL.
+     * The caller is responsible, that the URL matches this repository.
+     *
+     * @param urlString
+     *         the URL to call
+     * @param onError
+     *         receives the HTTP status code if the call failed with a status other than 403
+     * @return optionally, a string representing the JSON result, or an empty Optional, if the call failed
+     */
+    Optional<String> getJSONStringFromURL(String urlString, IntConsumer onError) {
+        OptionalInt missing = missingResources.get(urlString);
+        if (missing.isPresent()) {
+            LOG.fine(String.format("Skipping %s, which was missing before", urlString));
+            onError.accept(missing.getAsInt());
+            return Optional.empty();
+        }
+
         String json;
         LOG.fine(String.format("Getting json from %s by Thread %s", urlString, Thread.currentThread().getName()));
         try {
@@ -783,6 +1123,8 @@ public class GitHubRepository extends Repository {
                         if (resp.getStatusLine().getStatusCode() == 403)
                             continue;
 
+                        missingResources.put(urlString, resp.getStatusLine().getStatusCode());
+                        onError.accept(resp.getStatusLine().getStatusCode());
                         return Optional.empty();
                     }
 
@@ -817,7 +1159,7 @@ public class GitHubRepository extends Repository {
                 Thread.sleep(5000);
             } catch (InterruptedException ex) {
             }
-            return this.getJSONStringFromURL(urlString);
+            return this.getJSONStringFromURL(urlString, onError);
 
             //return Optional.empty();
         }
@@ -920,6 +1262,64 @@ public class GitHubRepository extends Repository {
         }
     }
 
+    /**
+     * Sets the API URLs that GitHub answered with 404 or 410 before, e.g., those read from the sidecar file of the
+     * issue cache. These URLs are not requested again until their failures expire.
+     *
+     * @param missingResources
+     *         the missing resources
+     * @see MissingResources#getFile(File)
+     */
+    public void setMissingResources(MissingResources missingResources) {
+        this.missingResources = missingResources;
+    }
+
+    /**
+     * Gets the API URLs that GitHub answered with 404 or 410, including those found missing in this run, so that
+     * they can be written next to the dump.
+     *
+     * @return the missing resources
+     */
+    public MissingResources getMissingResources() {
+        return missingResources;
+    }
+
+    /**
+     * Sets the maximum number of entries kept in each of the caches of commit and issue lookups of this repository.
+     * Least recently used lookups are evicted first and repeated if needed again.
+     * Default is {@link #DEFAULT_CACHE_CAPACITY}.
+     *
+     * @param capacity
+     *         the maximum number of entries per cache
+     */
+    public void setCacheCapacity(int capacity) {
+        commitLookups.setCapacity(capacity);
+        issueLookups.setCapacity(capacity);
+    }
+
+    /**
+     * Sets the maximum number of users kept in memory. The users are shared by all repositories, so this is a global
+     * switch and takes effect for all repositories. Evicted users are written to the {@link UserStore} last used by a
+     * repository and requested again from there, or from GitHub if there is none. The names of the users of a
+     * repository are kept until the repository is discarded. Default is {@link UserDataProcessor#DEFAULT_CAPACITY}.
+     *
+     * @param capacity
+     *         the maximum number of users per cache
+     */
+    public static void setUserCacheCapacity(int capacity) {
+        UserDataProcessor.setCapacity(capacity);
+    }
+
+    /**
+     * Gets the sizes, hits, misses, and evictions of the caches used by this repository.
+     *
+     * @return a description of the caches, one per line
+     */
+    public String getCacheStatistics() {
+        return String.join("\n", commitLookups.toString(), issueLookups.toString(),
+                UserDataProcessor.getCacheStatistics());
+    }
+
     /**
      * Gets, if strict email determination is required.
      *
@@ -947,6 +1347,237 @@ public class GitHubRepository extends Repository {
         }
     }
 
+    /**
+     * Gets the resources of issues that are requested from GitHub.
+     *
+     * @return the fetch profile
+     * @see #setFetchProfile(FetchProfile)
+     */
+    FetchProfile getFetchProfile() {
+        return fetchProfile.get();
+    }
+
+    /**
+     * Setter for the resources of issues that are requested from GitHub. Resources not included in the profile cost
+     * no requests, the corresponding lists of the issues are empty. Every issue records the profile it was requested
+     * with (see {@link IssueData#getFetchProfile()}).
+     * Default is {@link FetchProfile#ALL}.
+     * This is a global switch and takes effect on all issues deserialized afterwards.
+     *
+     * @param profile
+     *         the fetch profile
+     * @see #getFetchProfile()
+     */
+    public void setFetchProfile(FetchProfile profile) {
+        fetchProfile.set(profile);
+    }
+
+    /**
+     * Gets how the commits and issues referenced in issues are resolved.
+     *
+     * @return the link resolution
+     * @see #setLinkResolution(LinkResolution)
+     */
+    LinkResolution getLinkResolution() {
+        return linkResolution.get();
+    }
+
+    /**
+     * Setter for how the commits and issues referenced in issues are resolved.
+     * Default is {@link LinkResolution#EAGER}.
+     * This is a global switch and takes effect on all issues deserialized afterwards.
+     *
+     * @param resolution
+     *         the link resolution
+     * @see #getLinkResolution()
+     */
+    public void setLinkResolution(LinkResolution resolution) {
+        linkResolution.set(resolution);
+    }
+
+    /**
+     * Gets, if the timeline API is used to request the sub-resources of issues.
+     *
+     * @return {@code true} if the timeline API is used
+     * @see #useTimeline(boolean)
+     */
+    boolean useTimeline() {
+        synchronized (useTimeline) {
+            return useTimeline.get();
+        }
+    }
+
+    /**
+     * Setter for toggling the use of the timeline API.
+     * Default is {@code false}.
+     * If enabled, the comments, events, and reviews of an issue, and the commits of a pull request are requested in
+     * a single paginated stream instead of one stream per resource, and the issues referencing an issue are added
+     * to their related issues even if the reference cannot be found in their texts. The commits of pull requests
+     * lack the usernames of their authors and committers, though.
+     * This is a global switch and takes effect on all issues deserialized afterwards.
+     *
+     * @param useTimeline
+     *         if {@code true}, the timeline API is used
+     * @see #useTimeline()
+     */
+    public void useTimeline(boolean useTimeline) {
+        synchronized (this.useTimeline) {
+            this.useTimeline.set(useTimeline);
+        }
+    }
+
+    /**
+     * Gets, if the commits of pull requests are determined from the local repository.
+     *
+     * @return {@code true} if the commits are determined locally if possible
+     * @see #useLocalPullRequestCommits(boolean)
+     */
+    boolean useLocalPullRequestCommits() {
+        synchronized (useLocalPullRequestCommits) {
+            return useLocalPullRequestCommits.get();
+        }
+    }
+
+    /**
+     * Setter for toggling the local computation of the commits of pull requests.
+     * Default is {@code false}.
+     * If enabled, the commits of a pull request are the commits reachable from its head but not from its base in the
+     * local repository, which saves requesting them from GitHub. GitHub is only asked if head or base are not part of
+     * the local history, e.g., because it was rewritten. Locally determined commits lack the GitHub usernames of
+     * their authors and committers, and are not limited to the first 250 commits like on GitHub.
+     * This is a global switch and takes effect on the next pull request processed.
+     *
+     * @param useLocalPullRequestCommits
+     *         if {@code true}, the commits of pull requests are determined locally if possible
+     * @see #useLocalPullRequestCommits()
+     * @see #usePullRequestRefs(boolean)
+     */
+    public void useLocalPullRequestCommits(boolean useLocalPullRequestCommits) {
+        synchronized (this.useLocalPullRequestCommits) {
+            this.useLocalPullRequestCommits.set(useLocalPullRequestCommits);
+        }
+    }
+
+    /**
+     * Gets, if the heads of pull requests are fetched from the base repository.
+     *
+     * @return {@code true} if the heads are fetched from the base repository
+     * @see #usePullRequestRefs(boolean)
+     */
+    boolean usePullRequestRefs() {
+        synchronized (usePullRequestRefs) {
+            return usePullRequestRefs.get();
+        }
+    }
+
+    /**
+     * Setter for toggling the source of the commits of pull requests.
+     * Default is {@code false}.
+     * If enabled, the heads of all pull requests are fetched from {@code refs/pull/<number>/head} of the base
+     * repository with a single fetch to {@code refs/remotes/pr/<number>}, instead of adding and fetching the fork of
+     * every pull request. Pull requests whose forks or source branches were deleted are kept then, and the references
+     * of the {@link PullRequest PullRequests} are named {@code pr/<number>}.
+     * This is a global switch and takes effect on the next list of pull requests built.
+     *
+     * @param usePullRequestRefs
+     *         if {@code true}, the heads of pull requests are fetched from the base repository
+     * @see #usePullRequestRefs()
+     */
+    public void usePullRequestRefs(boolean usePullRequestRefs) {
+        synchronized (this.usePullRequestRefs) {
+            this.usePullRequestRefs.set(usePullRequestRefs);
+        }
+    }
+
+    /**
+     * Setter for toggling the lookup of local commits through a long-lived {@code git cat-file --batch} process.
+     * Default is {@code false}.
+     * If enabled, commits not registered yet are read from the process instead of starting git for every commit, and
+     * the commits of pull requests are read in batches. Disabling it stops the process.
+     * This is a global switch and takes immediate effect on all running and future lookups.
+     *
+     * @param useCatFile
+     *         if {@code true}, commits are read through {@code git cat-file --batch}
+     * @see #setGitCommand(String)
+     */
+    public void useCatFile(boolean useCatFile) {
+        synchronized (this.useCatFile) {
+            if (this.useCatFile.getAndSet(useCatFile) == useCatFile) {
+                return;
+            }
+            if (useCatFile) {
+                catFile = new CatFileProcess(this, gitCommand);
+            } else {
+                catFile.close();
+                catFile = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the process reading local commits, if enabled.
+     *
+     * @return optionally the process, or an empty Optional if commits are read by the {@link GitWrapper}
+     * @see #useCatFile(boolean)
+     */
+    private Optional<CatFileProcess> getCatFile() {
+        synchronized (useCatFile) {
+            return Optional.ofNullable(catFile);
+        }
+    }
+
+    /**
+     * Gets, if the details of pull requests are loaded only when needed.
+     *
+     * @return {@code true} if head and base of pull requests are loaded when first accessed
+     * @see #deferPullRequestDetails(boolean)
+     */
+    boolean deferPullRequestDetails() {
+        synchronized (deferPullRequestDetails) {
+            return deferPullRequestDetails.get();
+        }
+    }
+
+    /**
+     * Setter for toggling deferred loading of pull request details.
+     * Default is {@code false}.
+     * If enabled, pull requests are created from the issue listing alone and head and base are requested from
+     * GitHub only when first accessed (or serialized). This saves one request per pull request, if only the issue
+     * data of pull requests is of interest.
+     * This is a global switch and takes effect on all pull requests deserialized afterwards.
+     *
+     * @param defer
+     *         if {@code true}, the details of pull requests are loaded when needed
+     * @see #deferPullRequestDetails()
+     */
+    public void deferPullRequestDetails(boolean defer) {
+        synchronized (deferPullRequestDetails) {
+            deferPullRequestDetails.set(defer);
+        }
+    }
+
+    /**
+     * Loads head and base of a pull request, whose details were deferred.
+     *
+     * @param pr
+     *         the pull request
+     * @return whether head and base were loaded
+     */
+    boolean loadPullRequestDetails(PullRequestData pr) {
+        Optional<String> json = getJSONStringFromPath("/pulls/" + pr.number);
+        if (!json.isPresent()) {
+            LOG.warning("Could not get details of PR " + pr.number);
+            return false;
+        }
+
+        JsonObject details = gson.fromJson(json.get(), JsonObject.class);
+        pr.head = gson.fromJson(details.get("head"), RefData.class);
+        pr.base = gson.fromJson(details.get("base"), RefData.class);
+        pr.merged_at = gson.fromJson(details.get("merged_at"), Date.class);
+        pr.updateBranch();
+        return pr.head != null && pr.base != null;
+    }
+
     /**
      * This method provides a convenient way to convert GitHub-related objects back to their JSON representation
      * (For now only GitHub related data and commits can be serialized)
@@ -978,6 +1609,7 @@ public class GitHubRepository extends Repository {
      * @see #serialize(T)
      */
     public void streamSerialize(OutputStreamWriter out, List<IssueData> issueData) {
+        resolveLinks(issueData);
         try {
             JsonWriter writer = new JsonWriter(out);
             writer.setIndent("  ");
@@ -985,7 +1617,6 @@ public class GitHubRepository extends Repository {
 
             for (IssueData i : issueData) {
                 gson.toJson(i, IssueData.class, writer);
-                out.flush();
             }
             writer.endArray();
             writer.close();
@@ -995,9 +1626,123 @@ public class GitHubRepository extends Repository {
     }
 
     /**
-     * Gets the corresponding Commit for the given sha1 hash. If the commit is not known by the local repository, a
-     * query is sent to GitHub, to confirm its existence there and additional author data is retrieved. (e.g. GitHub
-     * retains a copy, even if a force push is performed).
+     * This method converts a list of {@code IssueData} objects to newline-delimited JSON, that is, every issue is
+     * written as compact JSON object on a line of its own. The output is buffered and only flushed at the end.
+     *
+     * Dumps in this format can be processed line by line (e.g., split into parts or appended to) without a full
+     * JSON parser and can be read back as issue cache just like the dumps written by
+     * {@link #streamSerialize(OutputStreamWriter, List)}.
+     *
+     * @param out
+     *         the output stream to write the UTF-8 encoded lines to
+     * @param issueData
+     *         the list of {@code IssueData} objects to serialize
+     * @see DumpFormat#NDJSON
+     */
+    public void streamSerializeLines(OutputStream out, List<IssueData> issueData) {
+        streamSerializeLines(out, issueData, null, 0);
+    }
+
+    /**
+     * This method converts a list of {@code IssueData} objects to newline-delimited JSON, that is, every issue is
+     * written as compact JSON object on a line of its own. Every {@code syncInterval} issues, the output is flushed
+     * and synced to the underlying storage device using the given file descriptor.
+     *
+     * @param out
+     *         the output stream to write the UTF-8 encoded lines to
+     * @param issueData
+     *         the list of {@code IssueData} objects to serialize
+     * @param syncTarget
+     *         the descriptor of the file written by {@code out}, or {@code null} to never sync
+     * @param syncInterval
+     *         the number of issues after which the output is synced, values less than 1 disable syncing
+     * @see #streamSerializeLines(OutputStream, List)
+     */
+    public void streamSerializeLines(OutputStream out, List<IssueData> issueData, FileDescriptor syncTarget, int syncInterval) {
+        streamSerializeLines(out, issueData, syncTarget, syncInterval, null);
+    }
+
+    /**
+     * This method converts a list of {@code IssueData} objects to newline-delimited JSON, that is, every issue is
+     * written as compact JSON object on a line of its own. Every {@code syncInterval} issues, the output is flushed
+     * and synced to the underlying storage device using the given file descriptor. The position of every issue is
+     * added to the given index, which is only meaningful if {@code out} is not compressed.
+     *
+     * @param out
+     *         the output stream to write the UTF-8 encoded lines to
+     * @param issueData
+     *         the list of {@code IssueData} objects to serialize
+     * @param syncTarget
+     *         the descriptor of the file written by {@code out}, or {@code null} to never sync
+     * @param syncInterval
+     *         the number of issues after which the output is synced, values less than 1 disable syncing
+     * @param index
+     *         the index to add the issues to, or {@code null} to not index the dump
+     * @see IndexedDumpReader
+     */
+    public void streamSerializeLines(OutputStream out, List<IssueData> issueData, FileDescriptor syncTarget,
+                                     int syncInterval, DumpIndex index) {
+        resolveLinks(issueData);
+        try {
+            // every issue is encoded to the buffer first, so its position in the output is known
+            ByteArrayOutputStream line = new ByteArrayOutputStream(1 << 16);
+            Writer lineWriter = new OutputStreamWriter(line, StandardCharsets.UTF_8);
+            boolean sync = syncTarget != null && syncInterval > 0;
+            long offset = 0;
+            int written = 0;
+
+            for (IssueData i : issueData) {
+                line.reset();
+                gson.toJson(i, IssueData.class, lineWriter);
+                lineWriter.flush();
+
+                if (index != null) {
+                    index.add(i, offset, line.size());
+                }
+                line.write('\n');
+                line.writeTo(out);
+                offset += line.size();
+
+                if (sync && ++written % syncInterval == 0) {
+                    out.flush();
+                    syncTarget.sync();
+                }
+            }
+            out.flush();
+            if (sync) {
+                syncTarget.sync();
+            }
+        } catch (IOException e) {
+            LOG.severe("An error occurred during serialization: " + e);
+        }
+    }
+
+    /**
+     * This method writes a list of {@code IssueData} objects as normalized dump, in which every user and commit is
+     * stored only once and referenced from the issues. To write the issues of several repositories into one dump,
+     * use a {@link NormalizedDumpWriter} directly.
+     *
+     * @param out
+     *         the output stream to write the UTF-8 encoded dump to
+     * @param issueData
+     *         the list of {@code IssueData} objects to serialize
+     * @see DumpFormat#NORMALIZED
+     */
+    public void streamSerializeNormalized(OutputStream out, List<IssueData> issueData) {
+        try {
+            NormalizedDumpWriter writer = new NormalizedDumpWriter();
+            writer.add(this, issueData);
+            writer.write(out);
+        } catch (IOException e) {
+            LOG.severe("An error occurred during serialization: " + e);
+        }
+    }
+
+    /**
+     * Gets the corresponding Commit for the given sha1 hash. The hash is first resolved against the object database
+     * of the local repository. Only if it is not known there and plausibly designates a commit, a query is sent to
+     * GitHub, to confirm its existence there and additional author data is retrieved. (e.g. GitHub retains a copy,
+     * even if a force push is performed).
      *
      * @param hash
      *         the sha1 hash of the Commit
@@ -1005,27 +1750,293 @@ public class GitHubRepository extends Repository {
      * to a Commit with the given hash
      */
     Optional<GitHubCommit> getGithubCommit(String hash) {
-        return checkedHashes.computeIfAbsent(hash, x -> {
-            if (offline.get()) {
-                return Optional.of(getGHCommitUnchecked(DummyCommit.DUMMY_COMMIT_ID));
-            } else {
+        return lookupGithubCommit(hash).join();
+    }
+
+    /**
+     * Starts looking up the Commit for the given sha1 hash (see {@link #getGithubCommit(String)}). Every hash is
+     * looked up only once: Concurrent and later calls for the same hash share the same lookup. Queries to GitHub are
+     * run in the thread pool of this repository.
+     *
+     * @param hash
+     *         the sha1 hash of the Commit
+     * @return the future result of the lookup
+     */
+    private CompletableFuture<Optional<GitHubCommit>> lookupGithubCommit(String hash) {
+        if (offline.get()) {
+            // not cached, as the dummy must not outlive the offline mode
+            return CompletableFuture.completedFuture(Optional.of(getGHCommitUnchecked(DummyCommit.DUMMY_COMMIT_ID)));
+        }
+
+        CompletableFuture<Optional<GitHubCommit>> lookup = commitLookups.get(hash);
+        if (lookup != null) {
+            return lookup;
+        }
+
+        CompletableFuture<Optional<GitHubCommit>> newLookup = new CompletableFuture<>();
+        lookup = commitLookups.putIfAbsent(hash, newLookup);
+        if (lookup != null) {
+            return lookup;
+        }
+
+        try {
+            if (localObjects.isAvailable()) {
+                LocalObjectIndex.Lookup local = localObjects.lookup(hash);
+                if (local.getCommitId().isPresent()) {
+                    newLookup.complete(getGHCommit(local.getCommitId().get()));
+                    return newLookup;
+                }
+                if (local.isKnown() || !isPlausibleCommitHash(hash)) {
+                    // ambiguous, no commit, or most likely a false positive match on a word or number
+                    newLookup.complete(Optional.empty());
+                    return newLookup;
+                }
+            }
+
+            threadPool.execute(() -> {
                 try {
-                    return getJSONStringFromURL(apiBaseURL + "/commits/" + hash).map(commitInfo ->
-                        gson.fromJson(commitInfo, new TypeToken<GitHubCommit>() {}.getType()));
-                } catch (JsonSyntaxException e)  {
-                    /* For whatever reason, the JSON String is malformed, perhaps due to ill-encoded characters
-                     * in patches within the files element of the JSON String.
-                     * Due to that, get the JSON String again and remove the content of the files element of the
-                     * JSON String, as it is not needed for further processing.
-                     */
-                    LOG.info("Malformed JSON String when querying data for commit " + hash + ". Neglect files element.");
-                    String jsonStringFromURL = getJSONStringFromURL(apiBaseURL + "/commits/" + hash).get();
-                    jsonStringFromURL = StringUtils.substringBefore(jsonStringFromURL, "\"files\":[");
-                    jsonStringFromURL = jsonStringFromURL + "\"files\":[]}";
-                    return Optional.of(gson.fromJson(jsonStringFromURL, new TypeToken<GitHubCommit>() {}.getType()));
+                    newLookup.complete(getCommitFromGitHub(hash));
+                } catch (RuntimeException e) {
+                    LOG.warning("Could not look up commit " + hash + " on GitHub: " + e);
+                    newLookup.complete(Optional.empty());
                 }
+            });
+        } catch (RuntimeException e) {
+            // callers waiting for this lookup must not block, and later calls may try again
+            LOG.warning("Could not look up commit " + hash + ": " + e);
+            commitLookups.remove(hash, newLookup);
+            newLookup.complete(Optional.empty());
+        }
+        return newLookup;
+    }
+
+    /**
+     * Queries GitHub for the Commit with the given sha1 hash.
+     *
+     * @param hash
+     *         the sha1 hash of the Commit
+     * @return optionally the Commit, or an empty Optional if GitHub does not know it
+     */
+    private Optional<GitHubCommit> getCommitFromGitHub(String hash) {
+        CommitStore store = commitStore;
+        String scope = apiBaseURL;
+        if (store != null) {
+            Optional<CommitStore.Entry> stored = store.get(hash, scope);
+            if (stored.isPresent()) {
+                return stored.get().getCommit().map(commitInfo -> gson.fromJson(commitInfo, GitHubCommit.class));
             }
-        });
+        }
+
+        // read only what is needed, the files with their patches may be huge and are sometimes ill-encoded
+        AtomicBoolean unknown = new AtomicBoolean(false);
+        Optional<JsonObject> commitInfo = getJSONStringFromURL(apiBaseURL + "/commits/" + hash,
+                status -> unknown.set(status == 404 || status == 422))
+                .flatMap(GitHubCommitProcessor::readCommit);
+
+        if (store != null) {
+            if (commitInfo.isPresent()) {
+                store.putCommit(hash, scope, commitInfo.get());
+            } else if (unknown.get()) {
+                store.putUnknown(hash, scope);
+            }
+        }
+        return commitInfo.map(info -> gson.fromJson(info, GitHubCommit.class));
+    }
+
+    /**
+     * Sets the store that keeps the results of commit lookups on GitHub across runs. The store may be shared by
+     * several repositories. Commits already in the store are not queried again, and neither are hashes that GitHub
+     * did not know in this repository recently.
+     *
+     * @param commitStore
+     *         the store, or {@code null} to query GitHub for all commits not found locally
+     */
+    public void setCommitStore(CommitStore commitStore) {
+        this.commitStore = commitStore;
+    }
+
+    /**
+     * Sets the store that keeps the user profiles requested from GitHub across runs. The store may be shared by
+     * several repositories. Users found in the store are not requested again until their profiles expire.
+     *
+     * @param userStore
+     *         the store, or {@code null} to request all users not requested in this run yet
+     */
+    public void setUserStore(UserStore userStore) {
+        this.userStore = userStore;
+    }
+
+    /**
+     * Gets the store that keeps the user profiles requested from GitHub across runs.
+     *
+     * @return the store, or {@code null} if there is none
+     */
+    UserStore getUserStore() {
+        return userStore;
+    }
+
+    /**
+     * Resolves the commits referenced in the given issues and adds them to the related commits of the issues (and
+     * to the referencing events). The referenced hashes of all issues are collected and deduplicated first, then
+     * resolved locally, and finally looked up on GitHub concurrently.
+     *
+     * @param issues
+     *         the issues, issues without unresolved commits are skipped
+     */
+    void linkCommits(Collection<IssueData> issues) {
+        // collect and deduplicate the hashes of all issues
+        Set<String> hashes = new LinkedHashSet<>();
+        for (IssueData issue : issues) {
+            List<ReferencedLink<List<String>>> candidates = issue.commitCandidates;
+            if (candidates != null) {
+                candidates.forEach(link -> hashes.addAll(link.target));
+            }
+        }
+
+        Map<String, CompletableFuture<Optional<GitHubCommit>>> lookups = new HashMap<>();
+        hashes.forEach(hash -> lookups.put(hash, lookupGithubCommit(hash)));
+        CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0])).join();
+
+        // attach the results, unless another thread did so in the meantime
+        for (IssueData issue : issues) {
+            synchronized (issue) {
+                if (issue.commitCandidates != null) {
+                    attachCommits(issue, lookups);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the resolved commit candidates of an issue to its related commits and referencing events.
+     *
+     * @param issue
+     *         the issue
+     * @param lookups
+     *         the lookups of the candidates, missing ones are added
+     */
+    private void attachCommits(IssueData issue, Map<String, CompletableFuture<Optional<GitHubCommit>>> lookups) {
+        List<ReferencedLink<GitHubCommit>> commits = issue.commitCandidates.stream()
+                .flatMap(link -> link.target.stream()
+                        .map(hash -> lookups.computeIfAbsent(hash, this::lookupGithubCommit).join())
+                        // filter out false positive matches on normal words (and other errors)
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .distinct()
+                        .map(target -> new ReferencedLink<>(target, link.user, link.referenced_at, link.type)))
+                .collect(Collectors.toList());
+        issue.addRelatedCommits(commits);
+
+        issue.getEventsList().stream()
+                .filter(event -> event instanceof EventData.ReferencedEventData)
+                .map(event -> (EventData.ReferencedEventData) event)
+                .filter(event -> event.commitId != null)
+                .forEach(event -> event.commit = lookups.computeIfAbsent(event.commitId, this::lookupGithubCommit).join().orElseGet(() -> {
+                    LOG.warning("Found commit unknown to GitHub and local git repo: " + event.commitId);
+                    return null;
+                }));
+
+        issue.commitCandidates = null;
+    }
+
+    /**
+     * Checks whether an issue with the given number exists in this repository. Issues that are known from the cache
+     * or the listing exist without further ado, all others are queried from GitHub (only the issue itself,
+     * without its comments, events, and so on). Every number is checked only once: Concurrent and later calls for
+     * the same number share the same check.
+     *
+     * @param number
+     *         the number of the issue
+     * @return the future result of the check
+     */
+    private CompletableFuture<Boolean> lookupIssue(int number) {
+        if (listedIssues.contains(number) || issueProcessor.getCache().containsKey(number)) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        return issueLookups.computeIfAbsent(number, num -> CompletableFuture.supplyAsync(() ->
+                getJSONStringFromPath("/issues/" + num).isPresent(), threadPool).exceptionally(e -> {
+                    LOG.warning("Could not look up issue " + num + " on GitHub: " + e);
+                    return false;
+                }));
+    }
+
+    /**
+     * Checks the issues referenced in the given issues for existence and adds the existing ones to the related issues.
+     * The referenced numbers of all issues are collected and deduplicated first, then the unknown ones are checked
+     * concurrently. Referenced issues are never deserialized, they are looked up by number when needed.
+     *
+     * @param issues
+     *         the issues, issues without unresolved references are skipped
+     */
+    void linkIssues(Collection<IssueData> issues) {
+        // collect and deduplicate the numbers of all issues
+        Set<Integer> numbers = new LinkedHashSet<>();
+        for (IssueData issue : issues) {
+            List<ReferencedLink<List<Integer>>> candidates = issue.issueCandidates;
+            if (candidates != null) {
+                candidates.forEach(link -> numbers.addAll(link.target));
+            }
+        }
+
+        Map<Integer, CompletableFuture<Boolean>> lookups = new HashMap<>();
+        numbers.forEach(number -> lookups.put(number, lookupIssue(number)));
+        CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0])).join();
+
+        // attach the results, unless another thread did so in the meantime
+        for (IssueData issue : issues) {
+            synchronized (issue) {
+                if (issue.issueCandidates == null) {
+                    continue;
+                }
+                List<ReferencedLink<Integer>> related = issue.issueCandidates.stream()
+                        .flatMap(link -> link.target.stream()
+                                // filter out false positive matches on normal words (and other errors)
+                                .filter(number -> lookups.computeIfAbsent(number, this::lookupIssue).join())
+                                .distinct()
+                                .map(target -> new ReferencedLink<>(target, link.user, link.referenced_at)))
+                        .collect(Collectors.toList());
+
+                // add the references GitHub knows of, but which were not found in the texts
+                List<ReferencedLink<Integer>> crossReferenced = crossReferences.getOrDefault(issue.number, Collections.emptyList());
+                synchronized (crossReferenced) {
+                    Set<Integer> found = related.stream().map(link -> link.target).collect(Collectors.toSet());
+                    crossReferenced.stream().filter(link -> !found.contains(link.target)).forEach(related::add);
+                }
+
+                issue.setRelatedIssues(related);
+                issue.issueCandidates = null;
+            }
+        }
+    }
+
+    /**
+     * Resolves the commits and issues referenced in the given issues in one batch. This is only needed for
+     * {@link LinkResolution#LAZY lazy} link resolution, if the links of many issues are about to be accessed, as
+     * otherwise every issue resolves its references on its own.
+     *
+     * @param issues
+     *         the issues, issues without unresolved references are skipped
+     */
+    public void resolveLinks(Collection<IssueData> issues) {
+        linkCommits(issues);
+        linkIssues(issues);
+    }
+
+    /**
+     * Checks whether the given hash, which is unknown to the local repository, is worth being looked up on GitHub.
+     * Abbreviated hashes need to have at least seven characters (the default abbreviation length of git and GitHub)
+     * and contain both digits and letters, which filters out numbers and words like "added" or "deadbeef".
+     *
+     * @param hash
+     *         the (abbreviated) hash
+     * @return whether the hash plausibly designates a commit
+     */
+    private static boolean isPlausibleCommitHash(String hash) {
+        if (hash.length() == 40) {
+            return true;
+        }
+        return hash.length() >= 7 && hash.chars().anyMatch(Character::isDigit) && hash.chars().anyMatch(Character::isLetter);
     }
 
     /**
@@ -1057,33 +2068,33 @@ public class GitHubRepository extends Repository {
      * @return the new Commit
      */
     GitHubCommit getReferencedCommit(String hash, String message, UserData.CommitUserData author, UserData.CommitUserData committer) {
-        // Disable logging for this method call, so false positives don't reported
-        Logger repoLog = Logger.getLogger(Repository.class.getCanonicalName());
-        Logger commitLog = Logger.getLogger(Commit.class.getCanonicalName());
-        Level repoLevel = repoLog.getLevel();
-        Level commitLevel = commitLog.getLevel();
-        repoLog.setLevel(Level.OFF);
-        commitLog.setLevel(Level.OFF);
-
         GitHubCommit commit = getGHCommitUnchecked(hash);
 
-        commit.setAuthor(author.name);
-        commit.setAuthorMail(author.email);
-        commit.setAuthorTime(author.date);
-        commit.setMessage(message);
-        commit.setAuthorUsername(author.githubUsername);
+        // the instance is shared, so merge the data from GitHub into it, keeping the data of the local repository
+        synchronized (commit) {
+            if (!commit.isLocal()) {
+                commit.setAuthor(author.name);
+                commit.setAuthorMail(author.email);
+                commit.setAuthorTime(author.date);
+                commit.setMessage(message);
+            }
+            // other lookups, e.g., through the timeline, may not know the usernames, so keep those already set
+            if (author.githubUsername != null) {
+                commit.setAuthorUsername(author.githubUsername);
+            }
 
-        if(committer != null) {
-            commit.setCommitter(committer.name);
-            commit.setCommitterMail(committer.email);
-            commit.setCommitterTime(committer.date);
-            commit.setCommitterUsername(committer.githubUsername);
+            if (committer != null) {
+                if (!commit.isLocal()) {
+                    commit.setCommitter(committer.name);
+                    commit.setCommitterMail(committer.email);
+                    commit.setCommitterTime(committer.date);
+                }
+                if (committer.githubUsername != null) {
+                    commit.setCommitterUsername(committer.githubUsername);
+                }
+            }
         }
 
-        // Reset logging
-        repoLog.setLevel(repoLevel);
-        commitLog.setLevel(commitLevel);
-
         return commit;
     }
 
@@ -1097,7 +2108,7 @@ public class GitHubRepository extends Repository {
      * @see #getCommitUnchecked(String)
      */
     GitHubCommit getGHCommitUnchecked(String id) {
-        return getGHCommit(id).orElse(unknownCommits.computeIfAbsent(id, (key) -> new GitHubCommit(this, key)));
+        return getGHCommit(id).orElseGet(() -> commits.computeIfAbsent(id, key -> new GitHubCommit(this, key)));
     }
 
      /**
@@ -1109,22 +2120,208 @@ public class GitHubRepository extends Repository {
      * @return the {@link GitHubCommit} or an empty {@link Optional} if the ID is invalid or an exception occurs
      */
     public Optional<GitHubCommit> getGHCommit(String id) {
-        Optional<Commit> commit = Optional.ofNullable(super.getCommit(id).orElse(unknownCommits.get(id)));
-        Optional<GitHubCommit> ghCommit = Optional.empty();
-        if(commit.isPresent()) {
-            ghCommit = Optional.ofNullable(new GitHubCommit(commit.get(), this, commit.get().getId()));
+        GitHubCommit registered = commits.get(id);
+        if (registered != null) {
+            return Optional.of(registered);
+        }
+
+        return getLocalCommit(id).map(local -> {
+            // copy before publishing it in the registry, as reading the data of the local commit may call git
+            GitHubCommit commit = new GitHubCommit(local, this, local.getId());
+            GitHubCommit existing = commits.putIfAbsent(local.getId(), commit);
+            commit = existing != null ? existing : commit;
+            if (!id.equals(local.getId())) {
+                commits.putIfAbsent(id, commit);
+            }
+            return commit;
+        });
+    }
+
+    /**
+     * Gets the commit with the given ID from the local repository. Hashes are checked against the object database of
+     * the local clone first, so that git is neither called nor logs warnings for hashes it does not know.
+     *
+     * @param id
+     *         the ID of the commit
+     * @return optionally the commit, or an empty Optional if it does not exist locally
+     */
+    private Optional<Commit> getLocalCommit(String id) {
+        if (localObjects.isAvailable() && id.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+            Optional<String> commitId = localObjects.lookup(id).getCommitId();
+            if (!commitId.isPresent()) {
+                return Optional.empty();
+            }
+            id = commitId.get();
+
+            GitHubCommit registered = commits.get(id);
+            if (registered != null && registered.isLocal()) {
+                return Optional.of(registered);
+            }
         }
-        return ghCommit;
+
+        Optional<CatFileProcess> process = getCatFile();
+        if (process.isPresent()) {
+            return process.get().read(id).map(this::registerLocal);
+        }
+        return super.getCommit(id);
+    }
+
+    /**
+     * Reads the given commits from the local repository in a single batch, if commits are read through
+     * {@code git cat-file --batch}, and registers them. Commits that are registered already are skipped.
+     *
+     * @param ids
+     *         the full hashes of the commits
+     * @see #useCatFile(boolean)
+     */
+    private void loadLocalCommits(Collection<String> ids) {
+        getCatFile().ifPresent(process -> {
+            List<String> missing = ids.stream().filter(id -> !commits.containsKey(id)).distinct().collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                process.read(missing).values().forEach(this::registerLocal);
+            }
+        });
+    }
+
+    /**
+     * Registers a commit read from the local repository, unless another instance is registered already.
+     *
+     * @param commit
+     *         the commit
+     * @return the registered instance
+     */
+    private GitHubCommit registerLocal(GitHubCommit commit) {
+        GitHubCommit existing = commits.putIfAbsent(commit.getId(), commit);
+        return existing != null ? existing : commit;
     }
 
     @Override
     Commit getCommitUnchecked(String id) {
-        return getCommit(id).orElse(unknownCommits.computeIfAbsent(id, (key) -> new GitHubCommit(this, key)));
+        return getCommit(id).orElseGet(() -> commits.computeIfAbsent(id, key -> new GitHubCommit(this, key)));
     }
 
     @Override
     public Optional<Commit> getCommit(String id) {
-        return Optional.ofNullable(super.getCommit(id).orElse(unknownCommits.get(id)));
+        GitHubCommit registered = commits.get(id);
+        if (registered != null && registered.isLocal()) {
+            return Optional.of(registered);
+        }
+        Optional<Commit> commit = getLocalCommit(id);
+        return commit.isPresent() ? commit : Optional.ofNullable(registered);
+    }
+
+    /**
+     * Reads the hashes, parents, authors, committers, dates, and messages of all commits of the local repository in
+     * a single run of {@code git log --all} and registers them, so that later lookups of these commits do not call
+     * git. The output of git is parsed while it is read.
+     *
+     * @return whether all commits could be read
+     * @see #setGitCommand(String)
+     */
+    public boolean preloadCommits() {
+        ProcessBuilder builder = new ProcessBuilder(gitCommand, "log", "--all", "-z", "--format=" + PRELOAD_FORMAT)
+                .directory(getDir())
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        int count = 0;
+        try {
+            Process process = builder.start();
+            try (Reader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String[] fields = new String[PRELOAD_FIELDS];
+                StringBuilder field = new StringBuilder();
+                int index = 0;
+                int c;
+                while ((c = reader.read()) >= 0) {
+                    if (c != 0) {
+                        field.append((char) c);
+                        continue;
+                    }
+
+                    // fields and commits are both terminated by NUL
+                    fields[index++] = field.toString();
+                    field.setLength(0);
+                    if (index == PRELOAD_FIELDS) {
+                        if (registerPreloaded(fields)) {
+                            count++;
+                        }
+                        index = 0;
+                    }
+                }
+                if (index == PRELOAD_FIELDS - 1) {
+                    // the last commit is not terminated
+                    fields[index] = field.toString();
+                    if (registerPreloaded(fields)) {
+                        count++;
+                    }
+                }
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                LOG.warning(String.format("Preloading commits of %s failed with exit code %d after %d commits", this, exitCode, count));
+                return false;
+            }
+        } catch (IOException e) {
+            LOG.warning(String.format("Could not preload commits of %s after %d commits: %s", this, count, e));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        LOG.info(String.format("Preloaded %d commits of %s", count, this));
+        return true;
+    }
+
+    /**
+     * Registers a commit read by {@link #preloadCommits()}. Commits with dates that cannot be parsed are skipped and
+     * read from git when they are requested.
+     *
+     * @param fields
+     *         the fields of the commit in the order of {@link #PRELOAD_FORMAT}
+     * @return whether the commit is registered
+     */
+    private boolean registerPreloaded(String[] fields) {
+        if (commits.containsKey(fields[0])) {
+            // keep the instance handed out already
+            return true;
+        }
+
+        OffsetDateTime authorTime;
+        OffsetDateTime committerTime;
+        try {
+            authorTime = OffsetDateTime.parse(fields[4]);
+            committerTime = OffsetDateTime.parse(fields[7]);
+        } catch (DateTimeParseException e) {
+            LOG.warning(String.format("Could not parse commit %s in %s: %s", fields[0], this, e));
+            return false;
+        }
+
+        List<String> parents = fields[1].isEmpty() ? Collections.emptyList() : Arrays.asList(fields[1].split(" "));
+        GitHubCommit commit = new GitHubCommit(this, fields[0], parents);
+        commit.setAuthor(fields[2]);
+        commit.setAuthorMail(fields[3]);
+        commit.setAuthorTime(authorTime);
+        commit.setCommitter(fields[5]);
+        commit.setCommitterMail(fields[6]);
+        commit.setCommitterTime(committerTime);
+        commit.setMessage(fields[8]);
+        commits.putIfAbsent(fields[0], commit);
+        return true;
+    }
+
+    /**
+     * Sets the git executable used by {@link #preloadCommits()}, by the {@link CatFileProcess} enabled through
+     * {@link #useCatFile(boolean)}, and by {@link CommitGraph#read(String, File)} to read the graph used for ancestry
+     * checks, merge bases, and the commits of pull requests determined locally. Processes already running and a graph
+     * already read keep the previous executable.
+     * Default is {@code git}.
+     *
+     * @param gitCommand
+     *         the git executable
+     */
+    public void setGitCommand(String gitCommand) {
+        this.gitCommand = gitCommand;
     }
 
     /**
@@ -1136,12 +2333,12 @@ public class GitHubRepository extends Repository {
      */
     public Optional<PullRequest> getPullRequest(String name) {
         if (pullRequests != null) {
-            return pullRequests.stream().filter(pr -> ((PullRequestData) pr.getIssue()).branch.equals(name)).findFirst();
+            return pullRequests.stream().filter(pr -> name.equals(((PullRequestData) pr.getIssue()).getBranch())).findFirst();
         } else {
             return issues.stream().filter(IssueData::isPullRequest).map(pr -> ((PullRequestData) pr))
-                    .filter(pr -> pr.branch.equals(name)).findFirst().map(prd ->
+                    .filter(pr -> name.equals(pr.getBranch()) && pr.getBase() != null).findFirst().map(prd ->
                             new PullRequest(this, State.getPRState(prd.state, prd.merged_at != null),
-                                    getBranch("origin/" + prd.base.ref).orElse(null), /*TODO*/ null, prd));
+                                    getBranch("origin/" + prd.getBase().ref).orElse(null), /*TODO*/ null, prd));
         }
     }
 
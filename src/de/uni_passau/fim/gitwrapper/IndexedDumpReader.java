@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * The IndexedDumpReader provides random access to the issues of an uncompressed {@link DumpFormat#NDJSON NDJSON}
+ * dump using its {@link DumpIndex}. Only the requested issues are read from disk and decoded, and no
+ * {@link GitHubRepository} is needed to do so. Consequently, the returned issues only contain the data stored in the
+ * dump; commits are not looked up in git and related issues cannot be resolved.
+ */
+public class IndexedDumpReader implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(IndexedDumpReader.class.getCanonicalName());
+
+    private final FileChannel channel;
+    private final DumpIndex index;
+    private final Gson gson;
+
+    /**
+     * Opens the given dump, using the index stored next to it.
+     *
+     * @param dump
+     *         the NDJSON dump
+     * @throws IOException
+     *         if the dump or its index cannot be read
+     * @see DumpIndex#getIndexFile(File)
+     */
+    public IndexedDumpReader(File dump) throws IOException {
+        this(dump, DumpIndex.read(DumpIndex.getIndexFile(dump)));
+    }
+
+    /**
+     * Opens the given dump, using the given index.
+     *
+     * @param dump
+     *         the NDJSON dump
+     * @param index
+     *         the index of the dump
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    public IndexedDumpReader(File dump, DumpIndex index) throws IOException {
+        this.channel = FileChannel.open(dump.toPath(), StandardOpenOption.READ);
+        this.index = index;
+        this.gson = GitHubRepository.createOfflineGsonBuilder().create();
+    }
+
+    /**
+     * Gets the index of the dump.
+     *
+     * @return the index
+     */
+    public DumpIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Reads the issue with the given number.
+     *
+     * @param number
+     *         the number of the issue
+     * @return optionally the issue, or an empty Optional if the issue is not part of the dump or cannot be read
+     */
+    public Optional<IssueData> getIssue(int number) {
+        return index.get(number).flatMap(this::read);
+    }
+
+    /**
+     * Reads all issues whose number lies in the given range.
+     *
+     * @param from
+     *         the lowest issue number (inclusive)
+     * @param to
+     *         the highest issue number (inclusive)
+     * @return the list of issues, ordered by number
+     */
+    public List<IssueData> getIssues(int from, int to) {
+        return read(index.getRange(from, to));
+    }
+
+    /**
+     * Reads all issues created in the given time span.
+     *
+     * @param from
+     *         the start of the time span (inclusive)
+     * @param to
+     *         the end of the time span (exclusive)
+     * @return the list of issues, ordered by creation time
+     */
+    public List<IssueData> getIssuesCreatedBetween(OffsetDateTime from, OffsetDateTime to) {
+        return read(index.getCreatedBetween(from, to));
+    }
+
+    /**
+     * Reads all issues in the given state.
+     *
+     * @param state
+     *         the state
+     * @return the list of issues, in the order of the dump
+     */
+    public List<IssueData> getIssues(State state) {
+        return read(index.getByState(state));
+    }
+
+    /**
+     * Reads the issues at the given positions, skipping those that cannot be read.
+     *
+     * @param entries
+     *         the positions of the issues
+     * @return the list of issues
+     */
+    private List<IssueData> read(List<DumpIndex.Entry> entries) {
+        List<IssueData> issues = new ArrayList<>(entries.size());
+        entries.forEach(entry -> read(entry).ifPresent(issues::add));
+        return issues;
+    }
+
+    /**
+     * Reads and decodes a single issue.
+     *
+     * @param entry
+     *         the position of the issue
+     * @return optionally the issue, or an empty Optional if it cannot be read
+     */
+    private Optional<IssueData> read(DumpIndex.Entry entry) {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.getLength());
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.getOffset() + buffer.position()) < 0) {
+                    LOG.warning("Dump ends before issue " + entry.getNumber() + ". Is the index outdated?");
+                    return Optional.empty();
+                }
+            }
+        } catch (IOException e) {
+            LOG.warning("Could not read issue " + entry.getNumber() + ": " + e);
+            return Optional.empty();
+        }
+
+        Type type = new TypeToken<GitHubRepository.IssueDataCached>() {}.getType();
+        try {
+            IssueData issue = gson.fromJson(new String(buffer.array(), StandardCharsets.UTF_8), type);
+            issue.freeze();
+            return Optional.of(issue);
+        } catch (JsonParseException e) {
+            LOG.warning("Could not decode issue " + entry.getNumber() + ": " + e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
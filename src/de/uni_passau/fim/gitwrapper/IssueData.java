@@ -19,7 +19,6 @@
  */
 package de.uni_passau.fim.gitwrapper;
 
-import com.google.gson.Gson;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -46,6 +45,9 @@ public class IssueData implements GitHubRepository.IssueDataCached {
 
     @SerializedName(value = "url", alternate = {"html_url"}) String url;
 
+    // the resources that were requested for this issue, null for all of them
+    String fetchProfile;
+
     private List<ReferencedLink<String>> commentsList;
     private List<EventData> eventsList;
     private List<ReviewData> reviewsList;
@@ -53,6 +55,11 @@ public class IssueData implements GitHubRepository.IssueDataCached {
     List<ReferencedLink<Integer>> relatedIssues;
 
     transient GitHubRepository repo;
+    // commits and issues referenced in the issue, which are yet to be resolved and added to the related ones
+    transient volatile List<ReferencedLink<List<String>>> commitCandidates;
+    transient volatile List<ReferencedLink<List<Integer>>> issueCandidates;
+    // issues read from the same dump without a repository, used to resolve related issues
+    transient Map<Integer, IssueData> dumpIssues;
     private transient boolean frozen;
 
     /**
@@ -100,18 +107,35 @@ public class IssueData implements GitHubRepository.IssueDataCached {
         relatedCommits = commits;
     }
 
+    /**
+     * Adds resolved Commits to the related Commits of this Issue. If this Issue is already frozen, the related Commits
+     * are frozen again.
+     *
+     * @param commits
+     *         the resolved Commits
+     * @see GitHubRepository#linkCommits(Collection)
+     */
+    synchronized void addRelatedCommits(List<ReferencedLink<GitHubCommit>> commits) {
+        List<ReferencedLink<GitHubCommit>> all = new ArrayList<>(commits);
+        all.addAll(relatedCommits);
+        relatedCommits = frozen ? freezeRelatedCommits(all) : all;
+    }
+
     /**
      * Sets a list of related Issues (rather their numbers) to this Issue
      * from links containing just issues numbers.
      *
      * @param issues
      *         the issue list (composed of Integers)
-     * @see IssueDataProcessor#parseIssues(IssueData, Gson)
+     * @see GitHubRepository#linkIssues(Collection)
      */
-    void setRelatedIssues(List<ReferencedLink<Integer>> issues) {
+    synchronized void setRelatedIssues(List<ReferencedLink<Integer>> issues) {
         relatedIssues = issues.stream().map(issue ->
                 new ReferencedLink<>(issue.target, issue.user, issue.referenced_at)
         ).collect(Collectors.toList());
+        if (frozen) {
+            relatedIssues = freezeRelatedIssues(relatedIssues);
+        }
     }
 
     /**
@@ -130,7 +154,7 @@ public class IssueData implements GitHubRepository.IssueDataCached {
     /**
      * Before accessing data for the first time, init, sort and lock all data once.
      */
-    void freeze() {
+    synchronized void freeze() {
         if (frozen) return;
 
         Comparator<ReferencedLink> compare = Comparator.comparing(ReferencedLink::getLinkTime);
@@ -145,16 +169,38 @@ public class IssueData implements GitHubRepository.IssueDataCached {
                 .filter(Objects::nonNull).sorted(compare).collect(Collectors.toList()));
         reviewsList = Collections.unmodifiableList(reviewsList.stream()
                 .filter(Objects::nonNull).sorted(Comparator.comparing(link -> link.submitted_at)).collect(Collectors.toList()));
-        relatedIssues = Collections.unmodifiableList(relatedIssues.stream()
-                .filter(Objects::nonNull).distinct().sorted(compare).collect(Collectors.toList()));
-        relatedCommits = Collections.unmodifiableList(relatedCommits.stream()
-                // Remove invalid commits before they cause problems
-                .filter(c -> c != null && c.getTarget() != null && c.getTarget().getAuthorTime() != null)
-                .distinct().sorted(compare).collect(Collectors.toList()));
+        relatedIssues = freezeRelatedIssues(relatedIssues);
+        relatedCommits = freezeRelatedCommits(relatedCommits);
 
         frozen = true;
     }
 
+    /**
+     * Sorts and locks the given related Issues.
+     *
+     * @param issues
+     *         the related Issues
+     * @return the frozen list
+     */
+    private static List<ReferencedLink<Integer>> freezeRelatedIssues(List<ReferencedLink<Integer>> issues) {
+        return Collections.unmodifiableList(issues.stream()
+                .filter(Objects::nonNull).distinct().sorted(Comparator.comparing(ReferencedLink::getLinkTime)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Sorts and locks the given related Commits.
+     *
+     * @param commits
+     *         the related Commits
+     * @return the frozen list
+     */
+    private static List<ReferencedLink<GitHubCommit>> freezeRelatedCommits(List<ReferencedLink<GitHubCommit>> commits) {
+        return Collections.unmodifiableList(commits.stream()
+                // Remove invalid commits before they cause problems
+                .filter(c -> c != null && c.getTarget() != null && c.getTarget().getAuthorTime() != null)
+                .distinct().sorted(Comparator.comparing(ReferencedLink::getLinkTime)).collect(Collectors.toList()));
+    }
+
     /**
      * Gets the number of the issue (referenced with {@code #nr}).
      *
@@ -268,24 +314,52 @@ public class IssueData implements GitHubRepository.IssueDataCached {
     }
 
     /**
-     * Gets a List of all Commits referenced in the Issue, its Comments and Events.
+     * Gets the FetchProfile that was used to request this Issue. Lists of resources not included in the profile are
+     * empty.
+     *
+     * @return the FetchProfile
+     */
+    public FetchProfile getFetchProfile() {
+        return fetchProfile == null ? FetchProfile.ALL : FetchProfile.parse(fetchProfile);
+    }
+
+    /**
+     * Gets a List of all Commits referenced in the Issue, its Comments and Events. If the references were not yet
+     * resolved (see {@link LinkResolution#LAZY}), they are resolved now.
      *
      * @return a List of Commits in form of ReferencedLink<GitHubCommit>
      */
     public List<ReferencedLink<GitHubCommit>> getRelatedCommits() {
+        if (commitCandidates != null && repo != null) {
+            repo.linkCommits(Collections.singletonList(this));
+        }
         return relatedCommits;
     }
 
     /**
-     * Gets a List of all Issues referenced in the Issue and its Comments.
+     * Gets a List of all Issues referenced in the Issue and its Comments. If the references were not yet resolved
+     * (see {@link LinkResolution#LAZY}), they are resolved now. Referenced issues that exist on GitHub but are not
+     * part of the issues read (e.g., issues created before {@code since} or transferred issues) are left out; their
+     * numbers are still part of the dump.
      *
      * @return a List of Issues in form of ReferencedLink<IssueData>
      */
     public List<ReferencedLink<IssueData>> getRelatedIssues() {
+        if (issueCandidates != null && repo != null) {
+            repo.linkIssues(Collections.singletonList(this));
+        }
         List<ReferencedLink<IssueData>> issues = new ArrayList<>();
 
         for(ReferencedLink<Integer> relatedIssue : relatedIssues) {
-            IssueData cachedIssue = repo.getIssueFromCache((Integer) relatedIssue.target);
+            IssueData cachedIssue;
+            if (repo != null) {
+                cachedIssue = repo.getIssueFromCache((Integer) relatedIssue.target);
+            } else {
+                cachedIssue = dumpIssues == null ? null : dumpIssues.get(relatedIssue.target);
+            }
+            if (cachedIssue == null) {
+                continue;
+            }
             ReferencedLink<IssueData> issue = new ReferencedLink<>(cachedIssue, relatedIssue.user, relatedIssue.referenced_at);
             issues.add(issue);
         }
@@ -28,8 +28,7 @@ import java.lang.reflect.Type;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -42,10 +41,10 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
     private static final JsonParser parser = new JsonParser();
 
     private Map<Integer, IssueData> cache = new ConcurrentHashMap<>();
-    private Map<Integer, IssueData> workingQueue = new ConcurrentHashMap<>();
+    private Set<Integer> inProgress = ConcurrentHashMap.newKeySet();
 
     private final GitHubRepository repo;
-    private final String issueBaseUrl;
+    private final ReferenceScanner scanner;
 
     /**
      * Creates a new IssueDataProcessor for handling Issues specific to the provided GitHubRepository.
@@ -53,30 +52,34 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
      * @param repo
      *         the repository
      */
-    IssueDataProcessor(GitHubRepository repo, String issueBaseUrl) {
+    IssueDataProcessor(GitHubRepository repo) {
         this.repo = repo;
-        this.issueBaseUrl = issueBaseUrl;
+        this.scanner = repo == null ? null : new ReferenceScanner(repo.getRepoUser(), repo.getRepoName());
     }
 
     /**
-     * Parses Commits from issue body, comment bodies, reviews, reviews' comments, and referenced events.
+     * Parses candidates for Commits from issue body, comment bodies, reviews, reviews' comments, and referenced
+     * events. The candidates are resolved later on for all issues at once.
      *
      * @param issue
      *         the IssueData
-     * @return a List of all referenced Commits
+     * @param scan
+     *         the function returning the references contained in a text
+     * @return a List of all referenced (abbreviated) commit hashes
+     * @see GitHubRepository#linkCommits(Collection)
      */
-    private List<ReferencedLink<GitHubCommit>> parseCommits(IssueData issue) {
+    private List<ReferencedLink<List<String>>> parseCommits(IssueData issue, Function<String, ReferenceScanner.References> scan) {
 
         // Parse commits from comments
         Stream<ReferencedLink<List<String>>> commentCommits = issue.getCommentsList().stream().map(comment ->
-                        new ReferencedLink<>(extractSHA1s(comment.target), comment.user, comment.referenced_at, "commitMentionedInIssue"));
+                        new ReferencedLink<>(scan.apply(comment.target).getShas(), comment.user, comment.referenced_at, "commitMentionedInIssue"));
 
         // Parse commits from referenced commits
         Stream<ReferencedLink<List<String>>> referencedCommits = issue.getEventsList().stream()
                 .filter(eventData -> eventData instanceof EventData.ReferencedEventData)
-                // filter out errors from referencing commits
-                .filter(eventData -> ((EventData.ReferencedEventData) eventData).commit != null)
-                .map(eventData -> new ReferencedLink<>(Collections.singletonList(((EventData.ReferencedEventData) eventData).commit.getId()), eventData.user, eventData.created_at, "commitReferencesIssue"));
+                // filter out events not referencing commits
+                .filter(eventData -> ((EventData.ReferencedEventData) eventData).commitId != null)
+                .map(eventData -> new ReferencedLink<>(Collections.singletonList(((EventData.ReferencedEventData) eventData).commitId), eventData.user, eventData.created_at, "commitReferencesIssue"));
 
         // Parse commits from reviews and reviews' comments
         if (issue.isPullRequest()) {
@@ -84,7 +87,7 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
 
             for (ReviewData review :issue.getReviewsList()) {
                 Stream<ReferencedLink<List<String>>> reviewCommentCommits = review.getReviewComments().stream().map(comment ->
-                                new ReferencedLink<>(extractSHA1s(comment.target.getBody()), comment.user, comment.referenced_at, "commitMentionedInIssue"));
+                                new ReferencedLink<>(scan.apply(comment.target.getBody()).getShas(), comment.user, comment.referenced_at, "commitMentionedInIssue"));
                 if (reviewsCommentCommits != null) {
                     reviewsCommentCommits = Stream.concat(reviewsCommentCommits, reviewCommentCommits);
                 } else {
@@ -94,7 +97,7 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
 
             Stream<ReferencedLink<List<String>>> reviewInitialCommentCommits = issue.getReviewsList().stream().map(review -> {
                             if (review.hasReviewInitialComment()) {
-                                return new ReferencedLink<>(extractSHA1s(((ReviewData.ReviewInitialCommentData) review).body), review.user, review.submitted_at, "commitMentionedInIssue");
+                                return new ReferencedLink<>(scan.apply(((ReviewData.ReviewInitialCommentData) review).body).getShas(), review.user, review.submitted_at, "commitMentionedInIssue");
                             } else {
                                 return new ReferencedLink<>(new ArrayList<>(), review.user, review.submitted_at);
                             }
@@ -109,8 +112,8 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
 
         // Parse commits from dismissal messages of "review_dismissed" events
         Stream<ReferencedLink<List<String>>> dismissalCommentCommits = issue.getEventsList().stream().map(event -> {
-                        if (event.getEvent() == "review_dismissed") {
-                            return new ReferencedLink<>(extractSHA1s(((EventData.DismissedReviewEventData) event).dismissalMessage), event.user, event.created_at, "commitMentionedInIssue");
+                        if (event instanceof EventData.DismissedReviewEventData) {
+                            return new ReferencedLink<>(scan.apply(((EventData.DismissedReviewEventData) event).dismissalMessage).getShas(), event.user, event.created_at, "commitMentionedInIssue");
                         } else {
                             return new ReferencedLink<>(new ArrayList<>(), event.user, event.created_at);
                         }
@@ -119,44 +122,39 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
         commentCommits = Stream.concat(commentCommits, dismissalCommentCommits);
 
         // Parse commits from issue body and concat it with all matches from above
-        return Stream.concat(Stream.concat(commentCommits, referencedCommits), Stream.of(new ReferencedLink<>(extractSHA1s(issue.body), issue.user, issue.created_at, "commitMentionedInIssue")))
-                .flatMap(commentEntries -> commentEntries.target.stream()
-                        .map(repo::getGithubCommit)
-                        // filter out false positive matches on normal words (and other errors)
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .distinct()
-                        .map(target -> new ReferencedLink<>(target, commentEntries.user, commentEntries.referenced_at, commentEntries.type)))
+        return Stream.concat(Stream.concat(commentCommits, referencedCommits), Stream.of(new ReferencedLink<>(scan.apply(issue.body).getShas(), issue.user, issue.created_at, "commitMentionedInIssue")))
+                .filter(commentEntries -> !commentEntries.target.isEmpty())
                 .collect(Collectors.toList());
     }
 
     /**
-     * Parse issues from issue body, comment bodies, reviews, reviews' comments, and referenced events.
+     * Parse candidates for issues from issue body, comment bodies, reviews, reviews' comments, and referenced events.
+     * The candidates are checked for existence later on for all issues at once.
      *
      * @param issue
      *         the Issue to analyze
-     * @param gson
-     *         the Gson used to deserialize
+     * @param scan
+     *         the function returning the references contained in a text
      * @return a list of all Issue numbers that are referenced in issue body, comment bodies, reviews, reviews' comments,
      *         and referenced events.
+     * @see GitHubRepository#linkIssues(Collection)
      */
-    List<ReferencedLink<Integer>> parseIssues(IssueData issue, Gson gson) {
+    private List<ReferencedLink<List<Integer>>> parseIssues(IssueData issue, Function<String, ReferenceScanner.References> scan) {
 
         // Parse issues from comments
-        Stream<ReferencedLink<List<String>>> commentIssues = issue.getCommentsList().stream().map(comment ->
-                new ReferencedLink<>(extractHashtags(comment.getTarget(), true), comment.user, comment.referenced_at));
+        Stream<ReferencedLink<List<Integer>>> commentIssues = issue.getCommentsList().stream().map(comment ->
+                new ReferencedLink<>(scan.apply(comment.getTarget()).getIssues(), comment.user, comment.referenced_at));
 
-        // to get real reference events, the timeline api needs to be incorporated. Since it is still in preview as of
-        // 2018-04, I have not implemented it.
-        // For details and links: https://gist.github.com/dahlbyk/229f6ee762e2b0b45f3add7c2459e64a
+        // real reference events are only available from the timeline api; if it is used, the cross-referencing
+        // issues are added when the links are resolved (see GitHubRepository#useTimeline(boolean))
 
         // Parse issues from reviews and reviews' comments
         if (issue.isPullRequest()) {
-            Stream<ReferencedLink<List<String>>> reviewsCommentsIssues = null;
+            Stream<ReferencedLink<List<Integer>>> reviewsCommentsIssues = null;
 
             for (ReviewData review :issue.getReviewsList()) {
-                Stream<ReferencedLink<List<String>>> reviewCommentsIssues = review.getReviewComments().stream().map(comment ->
-                        new ReferencedLink<>(extractHashtags(comment.target.getBody(), true), comment.user, comment.referenced_at));
+                Stream<ReferencedLink<List<Integer>>> reviewCommentsIssues = review.getReviewComments().stream().map(comment ->
+                        new ReferencedLink<>(scan.apply(comment.target.getBody()).getIssues(), comment.user, comment.referenced_at));
                 if (reviewsCommentsIssues != null) {
                     reviewsCommentsIssues = Stream.concat(reviewsCommentsIssues, reviewCommentsIssues);
                 } else {
@@ -164,9 +162,9 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
                 }
             }
 
-            Stream<ReferencedLink<List<String>>> reviewInitialCommentsIssues = issue.getReviewsList().stream().map(review -> {
+            Stream<ReferencedLink<List<Integer>>> reviewInitialCommentsIssues = issue.getReviewsList().stream().map(review -> {
                     if (review.hasReviewInitialComment()) {
-                        return new ReferencedLink<>(extractHashtags(((ReviewData.ReviewInitialCommentData) review).body, true), review.user, review.submitted_at);
+                        return new ReferencedLink<>(scan.apply(((ReviewData.ReviewInitialCommentData) review).body).getIssues(), review.user, review.submitted_at);
                     } else {
                         return new ReferencedLink<>(new ArrayList<>(), review.user, review.submitted_at);
                     }
@@ -180,9 +178,9 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
         }
 
         // Parse issues from dismissal messages of "review_dismissed" events
-        Stream<ReferencedLink<List<String>>> dismissalCommentIssues = issue.getEventsList().stream().map(event -> {
-                if (event.getEvent() == "review_dismissed") {
-                    return new ReferencedLink<>(extractHashtags(((EventData.DismissedReviewEventData) event).dismissalMessage, true), event.user, event.created_at);
+        Stream<ReferencedLink<List<Integer>>> dismissalCommentIssues = issue.getEventsList().stream().map(event -> {
+                if (event instanceof EventData.DismissedReviewEventData) {
+                    return new ReferencedLink<>(scan.apply(((EventData.DismissedReviewEventData) event).dismissalMessage).getIssues(), event.user, event.created_at);
                 } else {
                     return new ReferencedLink<>(new ArrayList<>(), event.user, event.created_at);
                 }
@@ -191,119 +189,74 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
         commentIssues = Stream.concat(commentIssues, dismissalCommentIssues);
 
         // Parse issues from issue body and concat it with all matches from above
-        return Stream.concat(commentIssues, Stream.of(new ReferencedLink<>(extractHashtags(issue.body, true), issue.user, issue.created_at)))
-                .flatMap(commentEntries -> commentEntries.target.stream()
-                        .map(link -> {
-                            int num;
-                            try {
-                                num = Integer.parseInt(link);
-                            } catch (NumberFormatException e) {
-                                //noinspection ConstantConditions Reason: type inference
-                                return Optional.ofNullable((Integer) null);
-                            }
-
-                            // again, short-circuit, if we have a cache hit
-                            IssueData cached = cache.get(num);
-                            if (cached != null) {
-                                return Optional.of(cached.getNumber());
-                            }
-
-                            Optional<String> refIssue = repo.getJSONStringFromURL(issueBaseUrl + link);
-                            try {
-                                return refIssue.map(s -> (((IssueData) gson.fromJson(s, new TypeToken<IssueDataCached>() {}.getType())).getNumber()));
-                            } catch (NullPointerException e) {
-                                // refIssue seems to be not existent, don't return an issue here
-                                return Optional.ofNullable((Integer) null);
-                            }
-                        })
-                        // filter out false positive matches on normal words (and other errors)
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .distinct()
-                        .map(target -> new ReferencedLink<>(target, commentEntries.user, commentEntries.referenced_at)))
+        return Stream.concat(commentIssues, Stream.of(new ReferencedLink<>(scan.apply(issue.body).getIssues(), issue.user, issue.created_at)))
+                .filter(commentEntries -> !commentEntries.target.isEmpty())
                 .collect(Collectors.toList());
     }
 
     /**
-     * Extracts theoretically valid commit hashes from text.
+     * Creates the link between a Pull Request and one of its Commits, referenced by the committer (or author) of the
+     * Commit at the time of committing.
      *
-     * @param text
-     *         the text to analyze
-     * @return a List of all valid hashes
+     * @param pr
+     *         the Pull Request
+     * @param c
+     *         the Commit
+     * @return the link
      */
-    private List<String> extractSHA1s(String text) {
-        if (text == null) {
-            return Collections.emptyList();
+    private static ReferencedLink<GitHubCommit> getPullRequestCommitLink(IssueData pr, GitHubCommit c) {
+        // Try to get committer data
+        UserData user = new UserData();
+        user.email = c.getCommitterMail();
+        user.name = c.getCommitter();
+        user.username = c.getCommitterUsername();
+        OffsetDateTime time = c.getCommitterTime();
+        // otherwise get author data, close enough
+        if (user.email == null && user.name == null && time == null) {
+            user.email = c.getAuthorMail();
+            user.name = c.getAuthor();
+            time = c.getAuthorTime();
+            user.username = c.getAuthorUsername();
         }
-        Pattern sha1Pattern = Pattern.compile("([0-9a-f]{5,40})");
-        Matcher matcher = sha1Pattern.matcher(text);
-
-        List<String> sha1s = new ArrayList<>();
-
-        while (matcher.find()) {
-            sha1s.add(matcher.group(1));
+        // if it still fails, make sure that we have data, even if it's just fomr the issue
+        if (user.email == null && user.name == null && time == null) {
+            user = pr.user;
+            time = pr.created_at;
         }
 
-        return sha1s;
+        return new ReferencedLink<>(c, user, time, "commitAddedToPullRequest");
     }
 
-    /**
-     * Extracts theoretically valid issue links from text.
-     *
-     * @param text
-     *         the text to analyze
-     * @param onlyInSameRepo
-     *         whether to only check for hashtags pointing to the same repository
-     * @return a List of all valid hashtags
-     */
-    private List<String> extractHashtags(String text, boolean onlyInSameRepo) {
-        if (text == null) {
-            return Collections.emptyList();
+    @Override
+    public void postSerialize(JsonElement result, IssueData src, Gson gson) {
+        JsonObject object = result.getAsJsonObject();
+
+        // lazily resolved links are needed now, as they are part of the dump
+        if (src.commitCandidates != null && object.has("relatedCommits")) {
+            object.add("relatedCommits", gson.toJsonTree(src.getRelatedCommits(),
+                    new TypeToken<List<ReferencedLink<GitHubCommit>>>() {}.getType()));
         }
-        Pattern hashtagPattern;
-
-        if (onlyInSameRepo) {
-            String repoName = repo.getRepoName();
-            String repoUser = repo.getRepoUser();
-
-            /* There are several possible patterns:
-             * (1) #number
-             * (2) repoUser#number
-             * (3) repoUser/repoName#number
-	     * (4) /pull/number
-	     * (5) repoUser/pull/number
-	     * (6) repoUser/repoName/pull/number
-	     * (7) /issues/number
-	     * (9) repoUser/issues/number
-	     * (10) repoUser/repoName/issues/number
-             */
-            hashtagPattern = Pattern.compile(String.format("(%s/%s|%s|^|\\s+)(#|/pull/|/issues/)([0-9]{1,11})",
-                                                           repoUser, repoName, repoUser));
-        } else {
-            hashtagPattern = Pattern.compile("#([0-9]{1,11})");
+        if (src.issueCandidates != null && object.has("relatedIssues")) {
+            src.getRelatedIssues();
+            object.add("relatedIssues", gson.toJsonTree(src.relatedIssues,
+                    new TypeToken<List<ReferencedLink<Integer>>>() {}.getType()));
         }
 
-        Matcher matcher = hashtagPattern.matcher(text);
-        List<String> hashtags = new ArrayList<>();
-
-        while (matcher.find()) {
-        String match;
-
-            if (onlyInSameRepo) {
-                // Just keep group 3, that is, keep everything after the #
-                match = matcher.group(3);
-            } else {
-                match = matcher.group(1);
-            }
-            hashtags.add(match);
+        if (!(src instanceof PullRequestData) || !((PullRequestData) src).deferred) {
+            return;
         }
 
-        return hashtags;
+        // deferred details are needed now, as they are part of the dump
+        PullRequestData pr = (PullRequestData) src;
+        pr.loadDetails();
+        if (object.has("head")) {
+            object.add("head", gson.toJsonTree(pr.head, RefData.class));
+            object.add("base", gson.toJsonTree(pr.base, RefData.class));
+            object.add("merged_at", gson.toJsonTree(pr.merged_at, Date.class));
+            object.addProperty("branch", pr.branch);
+        }
     }
 
-    @Override
-    public void postSerialize(JsonElement result, IssueData src, Gson gson) { }
-
     @Override
     public IssueDataCached deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
         int number = json.getAsJsonObject().get("number").getAsJsonPrimitive().getAsNumber().intValue();
@@ -327,12 +280,31 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
         // check if pr directly from github
         JsonElement pr = json.getAsJsonObject().get("pull_request");
         if (pr != null) {
-            // get additional data
-            return repo.getJSONStringFromURL(pr.getAsJsonObject().get("url").getAsString()).map(data -> {
-                PullRequestData result = context.deserialize(parser.parse(data), new TypeToken<PullRequestData>() {}.getType());
-                result.repo = repo;
-                return result;
-            }).orElse(null);
+            String prUrl = pr.getAsJsonObject().get("url").getAsString();
+            JsonObject merged = new JsonObject();
+            json.getAsJsonObject().entrySet().forEach(entry -> merged.add(entry.getKey(), entry.getValue()));
+
+            if (repo.deferPullRequestDetails()) {
+                // the listing already identifies the PR, head and base are loaded when needed
+                merged.addProperty("url", prUrl);
+                merged.addProperty("commits_url", prUrl + "/commits");
+                JsonElement mergedAt = pr.getAsJsonObject().get("merged_at");
+                if (mergedAt != null) {
+                    merged.add("merged_at", mergedAt);
+                }
+            } else {
+                // get additional data, which takes precedence over the data from the listing
+                Optional<String> data = repo.getJSONStringFromURL(prUrl);
+                if (!data.isPresent()) {
+                    return null;
+                }
+                parser.parse(data.get()).getAsJsonObject().entrySet().forEach(entry -> merged.add(entry.getKey(), entry.getValue()));
+            }
+
+            PullRequestData result = context.deserialize(merged, new TypeToken<PullRequestData>() {}.getType());
+            result.repo = repo;
+            result.deferred = repo.deferPullRequestDetails();
+            return result;
         }
 
         // check if pr from local dump, we then already have all data
@@ -351,82 +323,91 @@ public class IssueDataProcessor implements JsonDeserializer<IssueDataCached>, Po
 
     @Override
     public void postDeserialize(IssueData result, JsonElement src, Gson gson) {
-        // check if currently worked on, to return early and break cyclic dependencies
-        IssueData workingOn = workingQueue.get(result.number);
-        if (workingOn != null) return;
-        workingQueue.put(result.number, result);
+        // check if currently worked on, to return early when the issue data of a PR is deserialized below
+        if (!inProgress.add(result.number)) return;
         cache.put(result.number, result);
 
-        IssueData lookup = result;
         if (result.isPullRequest) {
-            // we need the actual issue data back, because events and comments are missing in a pr
-            JsonElement issueSource = parser.parse(repo.getJSONStringFromURL(src.getAsJsonObject().get("issue_url").getAsString())
-                    .orElseThrow(() -> new JsonParseException("Could not get Issue data for this PR: " + result.url)));
-            lookup = gson.fromJson(issueSource, new TypeToken<IssueDataCached>() {}.getType());
-
-            PullRequestData prResult = (PullRequestData) result;
-            if (prResult.head.repo != null) {
-                prResult.branch = prResult.head.repo.full_name + "/" + prResult.head.ref;
-            } else {
-                prResult.branch = prResult.head.sha;
-            }
+            ((PullRequestData) result).updateBranch();
         }
 
         // fill in missing data
         result.state = State.getFromString(src.getAsJsonObject().get("state").getAsString());
 
+        // only request the resources included in the profile, and record it
+        FetchProfile profile = repo.getFetchProfile();
+        if (result.getCommentsList() == null && result.getEventsList() == null) {
+            result.fetchProfile = profile.toString();
+        }
+
+        boolean fetchComments = result.getCommentsList() == null && profile.includes(FetchProfile.Resource.COMMENTS);
+        boolean fetchEvents = result.getEventsList() == null && profile.includes(FetchProfile.Resource.EVENTS);
+        boolean fetchReviews = result.getReviewsList() == null && result.isPullRequest && profile.includes(FetchProfile.Resource.REVIEWS);
+        boolean fetchCommits = result.getRelatedCommits() == null && result.isPullRequest && profile.includes(FetchProfile.Resource.COMMITS);
+
+        // get all of them at once, if possible, otherwise fall back to the separate requests
+        Timeline timeline = null;
+        if (repo.useTimeline() && (fetchComments || fetchEvents || fetchReviews || fetchCommits)) {
+            timeline = repo.getTimeline(result).orElse(null);
+        }
+        if (timeline != null) {
+            repo.addCrossReferences(result, timeline.referencedBy);
+        }
+
         if (result.getCommentsList() == null) {
-            Optional<List<ReferencedLink<String>>> comments = repo.getComments(lookup);
+            Optional<List<ReferencedLink<String>>> comments = !fetchComments ? Optional.empty()
+                    : timeline != null ? Optional.of(timeline.comments) : repo.getComments(result);
             result.setComments(comments.orElse(Collections.emptyList()));
         }
         if (result.getEventsList() == null) {
-            Optional<List<EventData>> events = repo.getEvents(lookup);
+            Optional<List<EventData>> events = !fetchEvents ? Optional.empty()
+                    : timeline != null ? Optional.of(timeline.events) : repo.getEvents(result);
             result.setEvents(events.orElse(Collections.emptyList()));
         }
 
         if (result.getReviewsList() == null && result.isPullRequest) {
-            Optional<List<ReviewData>> reviews = repo.getReviews(lookup);
+            Optional<List<ReviewData>> reviews = !fetchReviews ? Optional.empty()
+                    : timeline != null ? Optional.of(repo.joinReviewComments(result, timeline.reviews)) : repo.getReviews(result);
             result.setReviews(reviews.orElse(Collections.emptyList()));
         }
 
-        if (result.getRelatedCommits() == null) {
-            List<ReferencedLink<GitHubCommit>> commits = parseCommits(result);
-            if (result.isPullRequest) {
-                Optional<String> json = repo.getJSONStringFromURL(src.getAsJsonObject().get("commits_url").getAsString());
-                //noinspection unchecked
-                json.ifPresent(data -> commits.addAll(
-                        ((List<GitHubCommit>) gson.fromJson(data, new TypeToken<ArrayList<GitHubCommit>>() {}.getType())).stream().map(c -> {
-                            // Try to get committer data
-                            UserData user = new UserData();
-                            user.email = c.getCommitterMail();
-                            user.name = c.getCommitter();
-                            user.username = c.getCommitterUsername();
-                            OffsetDateTime time = c.getCommitterTime();
-                            // otherwise get author data, close enough
-                            if (user.email == null && user.name == null && time == null) {
-                                user.email = c.getAuthorMail();
-                                user.name = c.getAuthor();
-                                time = c.getAuthorTime();
-                                user.username = c.getAuthorUsername();
-                            }
-                            // if it still fails, make sure that we have data, even if it's just fomr the issue
-                            if (user.email == null && user.name == null && time == null) {
-                                user = result.user;
-                                time = result.created_at;
-                            }
+        // scan every text only once for both commits and issues
+        Map<String, ReferenceScanner.References> scanned = new IdentityHashMap<>();
+        Function<String, ReferenceScanner.References> scan = text -> scanned.computeIfAbsent(text, scanner::scan);
+        boolean resolveLinks = repo.getLinkResolution() != LinkResolution.SKIP;
+        boolean includeCommits = profile.includes(FetchProfile.Resource.COMMITS);
 
-                            return new ReferencedLink<>(c, user, time, "commitAddedToPullRequest");
-                        }).collect(Collectors.toList())));
+        if (result.getRelatedCommits() == null) {
+            if (resolveLinks && includeCommits) {
+                result.commitCandidates = parseCommits(result, scan);
+            }
+            List<ReferencedLink<GitHubCommit>> commits = new ArrayList<>();
+            if (result.isPullRequest && includeCommits) {
+                Optional<List<GitHubCommit>> prCommits;
+                if (timeline != null) {
+                    prCommits = Optional.of(timeline.commits);
+                } else {
+                    prCommits = repo.getLocalPullRequestCommits((PullRequestData) result);
+                    if (!prCommits.isPresent()) {
+                        prCommits = repo.getJSONStringFromURL(src.getAsJsonObject().get("commits_url").getAsString())
+                                .map(data -> gson.fromJson(data, new TypeToken<ArrayList<GitHubCommit>>() {}.getType()));
+                    }
+                }
+                prCommits.ifPresent(list -> commits.addAll(list.stream().map(c -> getPullRequestCommitLink(result, c))
+                        .collect(Collectors.toList())));
             }
 
             result.setRelatedCommits(commits);
         }
 
         if (result.relatedIssues == null) {
-            result.setRelatedIssues(parseIssues(result, gson));
+            if (resolveLinks) {
+                result.issueCandidates = parseIssues(result, scan);
+            }
+            result.relatedIssues = new ArrayList<>();
         }
 
-        workingQueue.remove(result.number);
+        inProgress.remove(result.number);
     }
 
     /**
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+/**
+ * Enumeration of the ways in which the commits and issues referenced in issues are resolved.
+ *
+ * @see GitHubRepository#setLinkResolution(LinkResolution)
+ */
+public enum LinkResolution {
+
+    /**
+     * All references are resolved while getting the issues, in one batch for all new issues.
+     */
+    EAGER,
+
+    /**
+     * References are resolved on first access of {@link IssueData#getRelatedCommits()} or
+     * {@link IssueData#getRelatedIssues()}, or in one batch using {@link GitHubRepository#resolveLinks(java.util.Collection)}
+     * or when the issues are serialized.
+     */
+    LAZY,
+
+    /**
+     * References are not resolved at all, only the commits of pull requests are related to them.
+     */
+    SKIP
+}
@@ -0,0 +1,493 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The LocalObjectIndex resolves (abbreviated) object hashes against the object database of a local clone by reading
+ * the pack index files and loose objects directly, that is, without spawning git. The pack index files are memory
+ * mapped on first use and searched using their fan-out tables and binary search. Objects fetched later may be stored
+ * in new pack files, so the pack directory is scanned again if a lookup finds nothing and the directory changed.
+ */
+class LocalObjectIndex {
+
+    private static final Logger LOG = Logger.getLogger(LocalObjectIndex.class.getCanonicalName());
+
+    private static final int PACK_IDX_V2_MAGIC = 0xff744f63; // "\377tOc"
+    private static final int FANOUT_SIZE = 256 * 4;
+    private static final int HASH_SIZE = 20;
+
+    private static final int OBJ_COMMIT = 1;
+    private static final int OBJ_OFS_DELTA = 6;
+    private static final int OBJ_REF_DELTA = 7;
+
+    private final File objectDir;
+    private List<PackIndex> packs;
+    private long packsModified;
+    private boolean packsStale;
+
+    /**
+     * The result of looking up a hash prefix.
+     */
+    static class Lookup {
+
+        private static final Lookup UNKNOWN = new Lookup(0, null);
+
+        private final int matches;
+        private final String commitId;
+
+        /**
+         * Creates a new Lookup.
+         *
+         * @param matches
+         *         the number of objects matching the prefix, capped at 2
+         * @param commitId
+         *         the full hash of the only matching object, if it is a commit, otherwise {@code null}
+         */
+        private Lookup(int matches, String commitId) {
+            this.matches = matches;
+            this.commitId = commitId;
+        }
+
+        /**
+         * Checks whether any local object matches the prefix.
+         *
+         * @return whether the prefix is known locally
+         */
+        boolean isKnown() {
+            return matches > 0;
+        }
+
+        /**
+         * Gets the full hash of the commit the prefix uniquely designates.
+         *
+         * @return optionally the full hash, or an empty Optional if the prefix is unknown, ambiguous, or does not
+         *         designate a commit
+         */
+        Optional<String> getCommitId() {
+            return Optional.ofNullable(commitId);
+        }
+    }
+
+    /**
+     * A memory-mapped pack index file (version 1 or 2).
+     */
+    private static class PackIndex {
+
+        private final File idxFile;
+        private final File pack;
+        private final ByteBuffer idx;
+        private final int version;
+        private final int size;
+
+        /**
+         * Maps the given pack index file.
+         *
+         * @param idxFile
+         *         the pack index file
+         * @throws IOException
+         *         if the file cannot be mapped or is no pack index file
+         */
+        PackIndex(File idxFile) throws IOException {
+            try (FileChannel channel = FileChannel.open(idxFile.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                this.idx = buffer;
+            }
+            this.idxFile = idxFile;
+            this.pack = new File(idxFile.getPath().replaceAll("\\.idx$", ".pack"));
+
+            if (idx.getInt(0) == PACK_IDX_V2_MAGIC) {
+                if (idx.getInt(4) != 2) {
+                    throw new IOException("Unsupported pack index version " + idx.getInt(4) + ": " + idxFile);
+                }
+                version = 2;
+            } else {
+                version = 1;
+            }
+            size = fanout(255);
+        }
+
+        /**
+         * Gets the number of objects whose hash starts with a byte less or equal to the given one.
+         *
+         * @param b
+         *         the first byte of the hash
+         * @return the number of objects
+         */
+        private int fanout(int b) {
+            return idx.getInt((version == 2 ? 8 : 0) + 4 * b);
+        }
+
+        /**
+         * Gets the position of the hash of the object with the given index.
+         *
+         * @param i
+         *         the index of the object
+         * @return the position of its hash in the index file
+         */
+        private int hashPosition(int i) {
+            return version == 2 ? 8 + FANOUT_SIZE + HASH_SIZE * i : FANOUT_SIZE + 24 * i + 4;
+        }
+
+        /**
+         * Gets the offset of the object with the given index in the pack file.
+         *
+         * @param i
+         *         the index of the object
+         * @return the offset of the object
+         */
+        private long packOffset(int i) {
+            if (version == 1) {
+                return Integer.toUnsignedLong(idx.getInt(FANOUT_SIZE + 24 * i));
+            }
+
+            int offsetTable = 8 + FANOUT_SIZE + (HASH_SIZE + 4) * size;
+            int offset = idx.getInt(offsetTable + 4 * i);
+            if (offset >= 0) {
+                return offset;
+            }
+            // the offset is an index into the table of large offsets
+            return idx.getLong(offsetTable + 4 * size + 8 * (offset & 0x7fffffff));
+        }
+
+        /**
+         * Compares the hash of the object with the given index to a prefix.
+         *
+         * @param i
+         *         the index of the object
+         * @param prefix
+         *         the prefix as nibbles
+         * @return a negative number, zero, or a positive number if the hash is less than, starts with, or is greater
+         *         than the prefix
+         */
+        private int compare(int i, byte[] prefix) {
+            int position = hashPosition(i);
+            for (int n = 0; n < prefix.length; n++) {
+                int b = idx.get(position + n / 2) & 0xff;
+                int nibble = n % 2 == 0 ? b >>> 4 : b & 0x0f;
+                if (nibble != prefix[n]) {
+                    return nibble - prefix[n];
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Adds the hashes of (up to two) objects whose hashes start with the given prefix.
+         *
+         * @param prefix
+         *         the prefix as nibbles
+         * @param found
+         *         the full hashes of all objects found so far
+         * @param commits
+         *         the full hashes of all found objects that may be commits
+         */
+        void find(byte[] prefix, Set<String> found, Set<String> commits) throws IOException {
+            int first = prefix[0] << 4 | (prefix.length > 1 ? prefix[1] : 0);
+            int low = first == 0 ? 0 : fanout(first - 1);
+            int high = prefix.length > 1 ? fanout(first) : fanout(first | 0x0f);
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(mid, prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            for (int i = low; i < size && found.size() < 2 && compare(i, prefix) == 0; i++) {
+                String hash = hash(i);
+                if (found.add(hash) && isCommit(packOffset(i))) {
+                    commits.add(hash);
+                }
+            }
+        }
+
+        /**
+         * Gets the full hash of the object with the given index.
+         *
+         * @param i
+         *         the index of the object
+         * @return the full hash
+         */
+        private String hash(int i) {
+            int position = hashPosition(i);
+            StringBuilder hash = new StringBuilder(2 * HASH_SIZE);
+            for (int n = 0; n < HASH_SIZE; n++) {
+                hash.append(String.format("%02x", idx.get(position + n) & 0xff));
+            }
+            return hash.toString();
+        }
+
+        /**
+         * Checks whether the object at the given offset in the pack file may be a commit. Deltified objects are
+         * assumed to be commits, since their type is only known after resolving the delta chain.
+         *
+         * @param offset
+         *         the offset of the object in the pack file
+         * @return whether the object may be a commit
+         */
+        private boolean isCommit(long offset) throws IOException {
+            try (FileChannel channel = FileChannel.open(pack.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(1);
+                if (channel.read(header, offset) < 1) {
+                    return false;
+                }
+                int type = (header.get(0) >> 4) & 0x07;
+                return type == OBJ_COMMIT || type == OBJ_OFS_DELTA || type == OBJ_REF_DELTA;
+            }
+        }
+    }
+
+    /**
+     * Creates a new LocalObjectIndex for the repository in the given directory, which may either be the working
+     * directory of a clone or a bare repository.
+     *
+     * @param dir
+     *         the directory of the repository, may be {@code null}
+     */
+    LocalObjectIndex(File dir) {
+        this.objectDir = dir == null ? null : new File(getGitDir(dir), "objects");
+    }
+
+    /**
+     * Determines the git directory of the repository in the given directory.
+     *
+     * @param dir
+     *         the directory of the repository
+     * @return the git directory
+     */
+    private static File getGitDir(File dir) {
+        File dotGit = new File(dir, ".git");
+        if (dotGit.isDirectory()) {
+            return dotGit;
+        }
+        if (dotGit.isFile()) {
+            // linked worktrees and submodules point to the actual git directory
+            try {
+                String link = new String(Files.readAllBytes(dotGit.toPath()), StandardCharsets.UTF_8).trim();
+                if (link.startsWith("gitdir:")) {
+                    File gitDir = new File(link.substring("gitdir:".length()).trim());
+                    return gitDir.isAbsolute() ? gitDir : new File(dir, gitDir.getPath());
+                }
+            } catch (IOException e) {
+                LOG.warning("Could not read " + dotGit + ": " + e);
+            }
+        }
+        // bare repository
+        return dir;
+    }
+
+    /**
+     * Checks whether the object database of the repository could be found.
+     *
+     * @return whether lookups can be answered
+     */
+    boolean isAvailable() {
+        return objectDir != null && objectDir.isDirectory();
+    }
+
+    /**
+     * Looks up all local objects whose hashes start with the given prefix.
+     *
+     * @param prefix
+     *         the (abbreviated) hash, consisting of lower-case hex digits only
+     * @return the result of the lookup
+     */
+    Lookup lookup(String prefix) {
+        if (!isAvailable() || prefix.isEmpty() || prefix.length() > 2 * HASH_SIZE) {
+            return Lookup.UNKNOWN;
+        }
+
+        byte[] nibbles = new byte[prefix.length()];
+        for (int i = 0; i < nibbles.length; i++) {
+            int digit = Character.digit(prefix.charAt(i), 16);
+            if (digit < 0) {
+                return Lookup.UNKNOWN;
+            }
+            nibbles[i] = (byte) digit;
+        }
+
+        Set<String> found = new HashSet<>();
+        Set<String> commits = new HashSet<>();
+        try {
+            findPacked(nibbles, found, commits);
+            if (found.size() < 2) {
+                findLoose(prefix, found, commits);
+            }
+            if (found.isEmpty() && refreshPacks()) {
+                findPacked(nibbles, found, commits);
+            }
+        } catch (IOException e) {
+            LOG.warning("Could not look up " + prefix + " in local object database: " + e);
+            return Lookup.UNKNOWN;
+        }
+
+        int matches = Math.min(found.size(), 2);
+        String commitId = matches == 1 && !commits.isEmpty() ? commits.iterator().next() : null;
+        return new Lookup(matches, commitId);
+    }
+
+    /**
+     * Adds the packed objects whose hashes start with the given prefix, stopping after the second match.
+     *
+     * @param nibbles
+     *         the hex digits of the (abbreviated) hash
+     * @param found
+     *         the full hashes of all objects found so far
+     * @param commits
+     *         the full hashes of all found objects that are commits
+     */
+    private void findPacked(byte[] nibbles, Set<String> found, Set<String> commits) throws IOException {
+        for (PackIndex pack : getPacks()) {
+            pack.find(nibbles, found, commits);
+            if (found.size() > 1) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the pack index files, mapping them on first use.
+     *
+     * @return the list of pack indexes
+     */
+    private synchronized List<PackIndex> getPacks() {
+        if (packs == null || packsStale) {
+            scanPacks();
+        }
+        return packs;
+    }
+
+    /**
+     * Scans the pack directory again if it changed since it was last scanned, e.g., because objects were fetched.
+     *
+     * @return whether the pack directory was scanned again
+     */
+    private synchronized boolean refreshPacks() {
+        if (packs != null && new File(objectDir, "pack").lastModified() == packsModified) {
+            return false;
+        }
+        scanPacks();
+        return true;
+    }
+
+    /**
+     * Marks the pack index files as outdated, so that the pack directory is scanned again on the next lookup. This
+     * should be called after objects were fetched, as the directory may change within the resolution of its time of
+     * modification.
+     */
+    synchronized void refresh() {
+        packsStale = true;
+    }
+
+    /**
+     * Maps the pack index files found in the pack directory. Pack index files mapped already are kept.
+     */
+    private synchronized void scanPacks() {
+        File packDir = new File(objectDir, "pack");
+        // read the time first, so that packs added while scanning lead to another scan
+        packsModified = packDir.lastModified();
+        packsStale = false;
+
+        Map<File, PackIndex> mapped = new HashMap<>();
+        if (packs != null) {
+            packs.forEach(pack -> mapped.put(pack.idxFile, pack));
+        }
+
+        List<PackIndex> scanned = new ArrayList<>();
+        File[] idxFiles = packDir.listFiles((d, name) -> name.endsWith(".idx"));
+        if (idxFiles != null) {
+            for (File idxFile : idxFiles) {
+                PackIndex pack = mapped.get(idxFile);
+                if (pack != null) {
+                    scanned.add(pack);
+                    continue;
+                }
+                try {
+                    scanned.add(new PackIndex(idxFile));
+                } catch (IOException e) {
+                    LOG.warning("Could not read pack index " + idxFile + ": " + e);
+                }
+            }
+        }
+        packs = scanned;
+    }
+
+    /**
+     * Adds the loose objects whose hashes start with the given prefix.
+     *
+     * @param prefix
+     *         the (abbreviated) hash
+     * @param found
+     *         the full hashes of all objects found so far
+     * @param commits
+     *         the full hashes of all found objects that are commits
+     */
+    private void findLoose(String prefix, Set<String> found, Set<String> commits) throws IOException {
+        if (prefix.length() < 2) {
+            return;
+        }
+        String rest = prefix.substring(2);
+        File[] objects = new File(objectDir, prefix.substring(0, 2)).listFiles((d, name) -> name.startsWith(rest));
+        if (objects == null) {
+            return;
+        }
+
+        for (File object : objects) {
+            String hash = prefix.substring(0, 2) + object.getName();
+            if (hash.length() == 2 * HASH_SIZE && found.add(hash) && isLooseCommit(object)) {
+                commits.add(hash);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given loose object is a commit by inflating its header.
+     *
+     * @param object
+     *         the file of the loose object
+     * @return whether the object is a commit
+     */
+    private static boolean isLooseCommit(File object) throws IOException {
+        // the Huffman tables may precede the header, so the amount of compressed input needed is not known upfront
+        try (InputStream in = new InflaterInputStream(new FileInputStream(object))) {
+            byte[] header = in.readNBytes(7);
+            return new String(header, StandardCharsets.US_ASCII).equals("commit ");
+        } catch (ZipException e) {
+            LOG.warning("Could not inflate loose object " + object + ": " + e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.io.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers the API URLs that GitHub answered with 404 (Not Found) or 410 (Gone), so that repeated references to
+ * missing issues, commits, or users do not cost further requests. The failures expire after a time to live that
+ * depends on the kind of the resource. They can be stored in a sidecar file next to a dump and read back with it.
+ */
+public class MissingResources {
+
+    /**
+     * The file extension of the sidecar files, which is appended to the name of the dump.
+     */
+    public static final String EXTENSION = ".missing";
+
+    private static final int MAGIC = 0x4748574d; // "GHWM"
+    private static final int VERSION = 1;
+
+    /**
+     * The kinds of resources with separate times to live.
+     */
+    public enum Resource {
+
+        ISSUE(Pattern.compile(".*/(issues|pulls)/\\d+"), Duration.ofDays(1)),
+        COMMIT(Pattern.compile(".*/commits/[^/]+"), Duration.ofDays(7)),
+        USER(Pattern.compile(".*/users/[^/]+"), Duration.ofDays(30)),
+        OTHER(Pattern.compile(".*"), Duration.ofDays(1));
+
+        private final Pattern url;
+        private final Duration defaultTtl;
+
+        /**
+         * Creates a new Resource.
+         *
+         * @param url
+         *         matches the API URLs of the resource
+         * @param defaultTtl
+         *         the default time to live of failures
+         */
+        Resource(Pattern url, Duration defaultTtl) {
+            this.url = url;
+            this.defaultTtl = defaultTtl;
+        }
+
+        /**
+         * Gets the kind of the resource at the given API URL.
+         *
+         * @param url
+         *         the URL
+         * @return the kind of resource
+         */
+        static Resource of(String url) {
+            for (Resource resource : values()) {
+                if (resource.url.matcher(url).matches()) {
+                    return resource;
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * A failed request.
+     */
+    private static class Failure {
+
+        private final Resource resource;
+        private final int status;
+        private final long time;
+
+        /**
+         * Creates a new Failure.
+         *
+         * @param resource
+         *         the kind of the resource
+         * @param status
+         *         the HTTP status code
+         * @param time
+         *         the time of the request in seconds since the epoch
+         */
+        private Failure(Resource resource, int status, long time) {
+            this.resource = resource;
+            this.status = status;
+            this.time = time;
+        }
+    }
+
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private final Map<Resource, Duration> ttls = new EnumMap<>(Resource.class);
+
+    /**
+     * Creates a new, empty MissingResources with the default times to live.
+     */
+    public MissingResources() {
+        for (Resource resource : Resource.values()) {
+            ttls.put(resource, resource.defaultTtl);
+        }
+    }
+
+    /**
+     * Sets the time after which the URL of a missing resource of the given kind is requested again.
+     *
+     * @param resource
+     *         the kind of resource
+     * @param ttl
+     *         the time to live
+     */
+    public synchronized void setTtl(Resource resource, Duration ttl) {
+        ttls.put(resource, ttl);
+    }
+
+    /**
+     * Gets the status GitHub answered the given URL with, if it is missing and the failure has not expired.
+     *
+     * @param url
+     *         the API URL
+     * @return optionally the HTTP status code, or an empty Optional if the URL has to be requested
+     */
+    OptionalInt get(String url) {
+        Failure failure = failures.get(url);
+        if (failure == null || isExpired(failure)) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(failure.status);
+    }
+
+    /**
+     * Records a failed request. Only 404 and 410 are recorded, as other failures are likely to be temporary.
+     *
+     * @param url
+     *         the API URL
+     * @param status
+     *         the HTTP status code
+     */
+    void put(String url, int status) {
+        if (status == 404 || status == 410) {
+            failures.put(url, new Failure(Resource.of(url), status, Instant.now().getEpochSecond()));
+        }
+    }
+
+    /**
+     * Checks whether the given failure is older than the time to live of its resource.
+     *
+     * @param failure
+     *         the failure
+     * @return whether the failure has expired
+     */
+    private synchronized boolean isExpired(Failure failure) {
+        return Instant.ofEpochSecond(failure.time).plus(ttls.get(failure.resource)).isBefore(Instant.now());
+    }
+
+    /**
+     * Gets the sidecar file of the given dump.
+     *
+     * @param dump
+     *         the dump
+     * @return the sidecar file
+     */
+    public static File getFile(File dump) {
+        return new File(dump.getPath() + EXTENSION);
+    }
+
+    /**
+     * Writes the failures that have not expired yet to the given file.
+     *
+     * @param file
+     *         the sidecar file
+     * @throws IOException
+     *         if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        Map<String, Failure> current = new ConcurrentHashMap<>(failures);
+        current.values().removeIf(this::isExpired);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(current.size());
+            for (Map.Entry<String, Failure> entry : current.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().resource.ordinal());
+                out.writeShort(entry.getValue().status);
+                out.writeLong(entry.getValue().time);
+            }
+        }
+    }
+
+    /**
+     * Reads the failures from the given file, using the default times to live.
+     *
+     * @param file
+     *         the sidecar file
+     * @return the failures
+     * @throws IOException
+     *         if the file cannot be read or is no sidecar file of missing resources
+     */
+    public static MissingResources read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a file of missing resources or unsupported version: " + file);
+            }
+
+            Resource[] resources = Resource.values();
+            MissingResources missing = new MissingResources();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String url = in.readUTF();
+                Resource resource = resources[in.readByte()];
+                int status = in.readShort();
+                long time = in.readLong();
+                missing.failures.put(url, new Failure(resource, status, time));
+            }
+            return missing;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * The NormalizedDumpProcessor holds the user and commit tables of a {@link DumpFormat#NORMALIZED normalized} dump and
+ * replaces users and commits by their IDs during serialization, and the IDs by shared instances during
+ * deserialization.
+ */
+class NormalizedDumpProcessor {
+
+    private static final Logger LOG = Logger.getLogger(NormalizedDumpProcessor.class.getCanonicalName());
+
+    private final List<UserData> users = new ArrayList<>();
+    private final Map<List<String>, Integer> userIds = new HashMap<>();
+    private final Map<String, Commit> commits = new LinkedHashMap<>();
+
+    /**
+     * Gets the table of all users, the index of a user is its ID.
+     *
+     * @return the list of users
+     */
+    List<UserData> getUsers() {
+        return users;
+    }
+
+    /**
+     * Gets the table of all commits by their hash.
+     *
+     * @return the map of commits
+     */
+    Map<String, Commit> getCommits() {
+        return commits;
+    }
+
+    /**
+     * Registers the processors for users and commits on the given GsonBuilder, replacing the default ones.
+     *
+     * @param gb
+     *         the GsonBuilder
+     * @return the GsonBuilder
+     */
+    GsonBuilder register(GsonBuilder gb) {
+        UserReferenceProcessor userReferences = new UserReferenceProcessor();
+        CommitReferenceProcessor commitReferences = new CommitReferenceProcessor();
+        gb.registerTypeAdapter(UserData.class, userReferences);
+        gb.registerTypeAdapter(Commit.class, commitReferences);
+        gb.registerTypeAdapter(GitHubCommit.class, commitReferences);
+        return gb;
+    }
+
+    /**
+     * Reads the issues of the given repository from a normalized dump. The users and commits of all issues are
+     * shared instances from the tables of the dump.
+     *
+     * @param reader
+     *         the reader positioned at the start of the dump
+     * @param tableGson
+     *         the Gson instance used to deserialize the entries of the user and commit tables
+     * @param gb
+     *         the GsonBuilder used to deserialize the issues
+     * @param repositories
+     *         accepts the URLs of the repositories whose issues are read, issues of other repositories are skipped
+     * @return the list of issues of the accepted repositories
+     * @throws IOException
+     *         if the dump cannot be read
+     */
+    static List<IssueData> read(Reader reader, Gson tableGson, GsonBuilder gb, Predicate<String> repositories) throws IOException {
+        NormalizedDumpProcessor tables = new NormalizedDumpProcessor();
+        Gson gson = tables.register(gb).create();
+        Type issueType = new TypeToken<GitHubRepository.IssueDataCached>() {}.getType();
+        List<IssueData> issues = new ArrayList<>();
+
+        JsonReader in = new JsonReader(reader);
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "users":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        tables.users.add(tableGson.fromJson(in, UserData.class));
+                    }
+                    in.endArray();
+                    break;
+                case "commits":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String hash = in.nextName();
+                        tables.commits.put(hash, tableGson.fromJson(in, GitHubCommit.class));
+                    }
+                    in.endObject();
+                    break;
+                case "repos":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String url = in.nextName();
+                        if (!repositories.test(url)) {
+                            in.skipValue();
+                            continue;
+                        }
+
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            issues.add(gson.fromJson(in, issueType));
+                        }
+                        in.endArray();
+                    }
+                    in.endObject();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return issues;
+    }
+
+    /**
+     * Checks whether the given URL of a repository in a dump denotes the given repository. The URLs are compared by
+     * owner and name, so that the protocol does not matter.
+     *
+     * @param url
+     *         the URL used in the dump
+     * @param user
+     *         the owner of the repository
+     * @param name
+     *         the name of the repository
+     * @return {@code true} if the URL denotes the repository
+     */
+    static boolean isSameRepo(String url, String user, String name) {
+        String[] parts = url.replaceAll("\\.git$", "").split("[/:]");
+        return parts.length >= 2
+                && parts[parts.length - 1].equalsIgnoreCase(name)
+                && parts[parts.length - 2].equalsIgnoreCase(user);
+    }
+
+    /**
+     * Processor replacing users by their index in the user table.
+     */
+    private class UserReferenceProcessor implements JsonSerializer<UserData>, JsonDeserializer<UserData> {
+
+        @Override
+        public JsonElement serialize(UserData src, Type typeOfSrc, JsonSerializationContext context) {
+            Integer id = userIds.computeIfAbsent(Arrays.asList(src.username, src.name, src.email), key -> {
+                users.add(src);
+                return users.size() - 1;
+            });
+            return new JsonPrimitive(id);
+        }
+
+        @Override
+        public UserData deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            int id = json.getAsInt();
+            if (id < 0 || id >= users.size()) {
+                LOG.warning("Encountered unknown user " + id + " in normalized dump.");
+                return null;
+            }
+            return users.get(id);
+        }
+    }
+
+    /**
+     * Processor replacing commits by their hash, which is the key in the commit table.
+     */
+    private class CommitReferenceProcessor implements JsonSerializer<Commit>, JsonDeserializer<Commit> {
+
+        @Override
+        public JsonElement serialize(Commit src, Type typeOfSrc, JsonSerializationContext context) {
+            commits.putIfAbsent(src.getId(), src);
+            return new JsonPrimitive(src.getId());
+        }
+
+        @Override
+        public Commit deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            Commit commit = commits.get(json.getAsString());
+            if (commit == null) {
+                LOG.warning("Encountered unknown commit " + json.getAsString() + " in normalized dump.");
+            }
+            return commit;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The NormalizedDumpWriter writes the issues of one or more repositories to a single
+ * {@link DumpFormat#NORMALIZED normalized} dump. Every user and every commit is written only once to the tables at
+ * the start of the dump and referenced from the issues by its ID, which keeps dumps with many comments and commit
+ * references small and lets readers share the instances.
+ *
+ * The issues are converted twice: once when they are {@link #add(GitHubRepository, List) added}, to fill the tables,
+ * and once when they are {@link #write(OutputStream) written}.
+ */
+public class NormalizedDumpWriter {
+
+    private final NormalizedDumpProcessor tables = new NormalizedDumpProcessor();
+    private final Map<GitHubRepository, List<IssueData>> repos = new LinkedHashMap<>();
+    private final Map<GitHubRepository, Gson> gsons = new HashMap<>();
+
+    /**
+     * Adds the issues of a repository to the dump.
+     *
+     * @param repo
+     *         the repository the issues belong to
+     * @param issueData
+     *         the list of {@code IssueData} objects to add
+     */
+    public void add(GitHubRepository repo, List<IssueData> issueData) {
+        Gson gson = gsons.computeIfAbsent(repo, r -> tables.register(r.createGsonBuilder()).create());
+        repo.resolveLinks(issueData);
+        for (IssueData i : issueData) {
+            gson.toJson(i, IssueData.class, Writer.nullWriter());
+        }
+        repos.computeIfAbsent(repo, r -> new ArrayList<>()).addAll(issueData);
+    }
+
+    /**
+     * Writes the dump containing all added issues as UTF-8 encoded, compact JSON to the given stream. The stream is
+     * flushed, but not closed.
+     *
+     * @param out
+     *         the output stream to write the dump to
+     * @throws IOException
+     *         if the dump cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+        writer.beginObject();
+        writer.name("layout").value("normalized");
+
+        if (!repos.isEmpty()) {
+            GitHubRepository anyRepo = repos.keySet().iterator().next();
+            Gson tableGson = anyRepo.createGsonBuilder().create();
+
+            writer.name("users").beginArray();
+            for (UserData user : tables.getUsers()) {
+                tableGson.toJson(user, UserData.class, writer);
+            }
+            writer.endArray();
+
+            writer.name("commits").beginObject();
+            for (Map.Entry<String, Commit> commit : tables.getCommits().entrySet()) {
+                GitHubCommit ghCommit = commit.getValue() instanceof GitHubCommit
+                        ? (GitHubCommit) commit.getValue()
+                        : new GitHubCommit(commit.getValue(), commit.getValue().getRepo(), commit.getKey());
+                writer.name(commit.getKey());
+                tableGson.toJson(ghCommit, GitHubCommit.class, writer);
+            }
+            writer.endObject();
+        }
+
+        writer.name("repos").beginObject();
+        for (Map.Entry<GitHubRepository, List<IssueData>> repo : repos.entrySet()) {
+            Gson gson = gsons.get(repo.getKey());
+            writer.name(repo.getKey().getUrl()).beginArray();
+            for (IssueData i : repo.getValue()) {
+                gson.toJson(i, IssueData.class, writer);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+
+        writer.endObject();
+        writer.flush();
+    }
+}
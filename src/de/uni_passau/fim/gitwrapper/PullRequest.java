@@ -51,7 +51,27 @@ public class PullRequest extends Reference {
      *         the corresponding pull request in GitHub
      */
     PullRequest(GitHubRepository repo, State state, Reference targetBranch, List<Commit> commits, PullRequestData issue) {
-        super(repo, issue.branch);
+        this(repo, state, targetBranch, commits, issue, issue.getBranch());
+    }
+
+    /**
+     * Adds a PullRequest to the given repo {@code repo}, using the given reference for its head.
+     *
+     * @param repo
+     *         the local Repository representation of the GitHub repository
+     * @param state
+     *         the sate of the pull request
+     * @param targetBranch
+     *         the target branch
+     * @param commits
+     *         A list of Commits included in this PullRequest
+     * @param issue
+     *         the corresponding pull request in GitHub
+     * @param ref
+     *         the name of the local reference to the head of the pull request
+     */
+    PullRequest(GitHubRepository repo, State state, Reference targetBranch, List<Commit> commits, PullRequestData issue, String ref) {
+        super(repo, ref);
         this.state = state;
         this.targetBranch = targetBranch;
         this.commits = commits;
@@ -94,7 +114,7 @@ public class PullRequest extends Reference {
         // (which has the merge base as an ancestor)
         return getMergeBase(targetBranch).map(c -> {
             for (Commit commit : history)
-                if (c.checkAncestry(commit).orElse(false))
+                if (repo.checkAncestry(c, commit).orElse(false))
                     return commit;
             return null;
         });
@@ -106,7 +126,7 @@ public class PullRequest extends Reference {
      * @return optionally the Commit at the tip, or an empty Optional, if the operations failed
      */
     public Optional<Commit> getTip() {
-        return repo.getCommit(issue.head.sha);
+        return Optional.ofNullable(issue.getHead()).flatMap(head -> repo.getCommit(head.sha));
     }
 
     /**
@@ -115,7 +135,11 @@ public class PullRequest extends Reference {
      * @return optionally the Commit that constitutes the merge base, or an empty Optional, if the operations failed
      */
     public Optional<Commit> getMergeBase() {
-        return getMergeTarget().flatMap(this::getMergeBase);
+        return getMergeTarget().flatMap(target -> {
+            // the tip is what the branch of this pull request points to, and its history is known to the commit graph
+            Optional<Commit> tip = getTip();
+            return tip.isPresent() ? repo.getMergeBase(tip.get(), target) : getMergeBase(target);
+        });
     }
 
     /**
@@ -30,6 +30,9 @@ public class PullRequestData extends IssueData {
     Date merged_at;
     String branch;
 
+    // head and base are yet to be loaded (see GitHubRepository#deferPullRequestDetails(boolean))
+    transient volatile boolean deferred;
+
     /**
      * For use by the deserializer.
      */
@@ -37,10 +40,40 @@ public class PullRequestData extends IssueData {
         this.isPullRequest = true;
     }
 
+    /**
+     * Loads head and base of this PullRequest, if they were deferred. If loading fails, head and base remain
+     * {@code null} and loading is tried again on the next access.
+     */
+    void loadDetails() {
+        if (!deferred) {
+            return;
+        }
+        synchronized (this) {
+            if (deferred && repo.loadPullRequestDetails(this)) {
+                deferred = false;
+            }
+        }
+    }
+
+    /**
+     * Derives the name of the branch from the head of this PullRequest.
+     */
+    void updateBranch() {
+        if (head == null) {
+            return;
+        }
+        if (head.repo != null) {
+            branch = head.repo.full_name + "/" + head.ref;
+        } else {
+            branch = head.sha;
+        }
+    }
+
     /**
      * Info about the head/tip of the PullRequest.
      */
     public RefData getHead() {
+        loadDetails();
         return head;
     }
 
@@ -48,6 +81,7 @@ public class PullRequestData extends IssueData {
      * Info about the base/target of the PullRequest.
      */
     public RefData getBase() {
+        loadDetails();
         return base;
     }
 
@@ -62,6 +96,7 @@ public class PullRequestData extends IssueData {
      * The name of the branch/reference.
      */
     public String getBranch() {
+        loadDetails();
         return branch;
     }
 }
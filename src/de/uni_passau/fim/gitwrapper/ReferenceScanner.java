@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ReferenceScanner extracts references to commits and issues of a repository from text in a single pass.
+ *
+ * Commit candidates are runs of 5 to 40 lower-case hex digits (longer runs are split into chunks of 40 characters).
+ * Issue references are issue numbers of up to 11 digits following {@code #}, {@code /pull/}, or {@code /issues/},
+ * which in turn have to follow the start of the text, whitespace, {@code repoUser}, or {@code repoUser/repoName}.
+ */
+class ReferenceScanner {
+
+    private static final int MIN_SHA_LENGTH = 5;
+    private static final int MAX_SHA_LENGTH = 40;
+    private static final int MAX_ISSUE_DIGITS = 11;
+
+    private static final String PULL_MARKER = "/pull/";
+    private static final String ISSUES_MARKER = "/issues/";
+
+    private final String repoPath;
+    private final String repoUser;
+
+    /**
+     * The references found in a single text. Positions and numbers are stored in primitive arrays.
+     */
+    static class References {
+
+        private static final References EMPTY = new References("");
+
+        private final String text;
+        private int[] shaBounds = new int[0];
+        private int shaCount;
+        private int[] issues = new int[0];
+        private int issueCount;
+
+        /**
+         * Creates new, empty References for the given text.
+         *
+         * @param text
+         *         the scanned text
+         */
+        private References(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Adds a commit candidate.
+         *
+         * @param start
+         *         the index of the first character
+         * @param end
+         *         the index after the last character
+         */
+        private void addSha(int start, int end) {
+            if (2 * shaCount + 2 > shaBounds.length) {
+                shaBounds = Arrays.copyOf(shaBounds, Math.max(8, 2 * shaBounds.length));
+            }
+            shaBounds[2 * shaCount] = start;
+            shaBounds[2 * shaCount + 1] = end;
+            shaCount++;
+        }
+
+        /**
+         * Adds an issue number.
+         *
+         * @param number
+         *         the number
+         */
+        private void addIssue(int number) {
+            if (issueCount == issues.length) {
+                issues = Arrays.copyOf(issues, Math.max(4, 2 * issues.length));
+            }
+            issues[issueCount++] = number;
+        }
+
+        /**
+         * Gets the number of commit candidates.
+         *
+         * @return the number of candidates
+         */
+        int getShaCount() {
+            return shaCount;
+        }
+
+        /**
+         * Gets the commit candidate with the given index.
+         *
+         * @param index
+         *         the index of the candidate, in order of appearance
+         * @return the (abbreviated) hash
+         */
+        String getSha(int index) {
+            return text.substring(shaBounds[2 * index], shaBounds[2 * index + 1]);
+        }
+
+        /**
+         * Gets all commit candidates in order of appearance.
+         *
+         * @return the list of (abbreviated) hashes
+         */
+        List<String> getShas() {
+            List<String> shas = new ArrayList<>(shaCount);
+            for (int i = 0; i < shaCount; i++) {
+                shas.add(getSha(i));
+            }
+            return shas;
+        }
+
+        /**
+         * Gets the number of issue references.
+         *
+         * @return the number of references
+         */
+        int getIssueCount() {
+            return issueCount;
+        }
+
+        /**
+         * Gets the referenced issue with the given index.
+         *
+         * @param index
+         *         the index of the reference, in order of appearance
+         * @return the issue number
+         */
+        int getIssue(int index) {
+            return issues[index];
+        }
+
+        /**
+         * Gets all referenced issues in order of appearance.
+         *
+         * @return the list of issue numbers
+         */
+        List<Integer> getIssues() {
+            List<Integer> result = new ArrayList<>(issueCount);
+            for (int i = 0; i < issueCount; i++) {
+                result.add(issues[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Creates a new ReferenceScanner for issue references to the given repository.
+     *
+     * @param repoUser
+     *         the owner of the repository
+     * @param repoName
+     *         the name of the repository
+     */
+    ReferenceScanner(String repoUser, String repoName) {
+        this.repoUser = repoUser;
+        this.repoPath = repoUser + "/" + repoName;
+    }
+
+    /**
+     * Scans the given text for references.
+     *
+     * @param text
+     *         the text, may be {@code null}
+     * @return the references found in the text
+     */
+    References scan(String text) {
+        if (text == null || text.isEmpty()) {
+            return References.EMPTY;
+        }
+
+        References refs = new References(text);
+        int length = text.length();
+        int hexStart = -1;
+        int issueEnd = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            // commit candidates
+            if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')) {
+                if (hexStart < 0) {
+                    hexStart = i;
+                }
+                if (i + 1 - hexStart == MAX_SHA_LENGTH) {
+                    refs.addSha(hexStart, i + 1);
+                    hexStart = -1;
+                }
+            } else {
+                if (hexStart >= 0 && i - hexStart >= MIN_SHA_LENGTH) {
+                    refs.addSha(hexStart, i);
+                }
+                hexStart = -1;
+            }
+
+            // issue references, which must not overlap with the previous one
+            int markerLength;
+            if (c == '#') {
+                markerLength = 1;
+            } else if (c == '/' && text.startsWith(PULL_MARKER, i)) {
+                markerLength = PULL_MARKER.length();
+            } else if (c == '/' && text.startsWith(ISSUES_MARKER, i)) {
+                markerLength = ISSUES_MARKER.length();
+            } else {
+                continue;
+            }
+            if (!hasPrefix(text, i, issueEnd)) {
+                continue;
+            }
+
+            int digitsStart = i + markerLength;
+            int digitsEnd = digitsStart;
+            long number = 0;
+            while (digitsEnd < length && digitsEnd - digitsStart < MAX_ISSUE_DIGITS
+                    && text.charAt(digitsEnd) >= '0' && text.charAt(digitsEnd) <= '9') {
+                number = 10 * number + (text.charAt(digitsEnd) - '0');
+                digitsEnd++;
+            }
+            if (digitsEnd == digitsStart) {
+                continue;
+            }
+
+            issueEnd = digitsEnd;
+            if (number <= Integer.MAX_VALUE) {
+                refs.addIssue((int) number);
+            }
+        }
+
+        if (hexStart >= 0 && length - hexStart >= MIN_SHA_LENGTH) {
+            refs.addSha(hexStart, length);
+        }
+
+        return refs;
+    }
+
+    /**
+     * Checks whether an issue marker at the given position is preceded by the start of the text, whitespace, or the
+     * repository, starting no earlier than {@code from}.
+     *
+     * @param text
+     *         the text
+     * @param marker
+     *         the position of the marker
+     * @param from
+     *         the first position the prefix may start at
+     * @return whether a valid prefix precedes the marker
+     */
+    private boolean hasPrefix(String text, int marker, int from) {
+        if (marker == 0) {
+            return true;
+        }
+        if (marker - 1 >= from && isWhitespace(text.charAt(marker - 1))) {
+            return true;
+        }
+        return endsWith(text, marker, repoPath, from) || endsWith(text, marker, repoUser, from);
+    }
+
+    /**
+     * Checks whether the given string occurs in the text right before the given position.
+     *
+     * @param text
+     *         the text
+     * @param end
+     *         the position the string has to end at
+     * @param string
+     *         the string
+     * @param from
+     *         the first position the string may start at
+     * @return whether the string precedes {@code end}
+     */
+    private static boolean endsWith(String text, int end, String string, int from) {
+        int start = end - string.length();
+        return start >= from && text.startsWith(string, start);
+    }
+
+    /**
+     * Checks whether the given character is whitespace as defined by the {@code \s} character class of regular
+     * expressions.
+     *
+     * @param c
+     *         the character
+     * @return whether {@code c} is whitespace
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -118,8 +118,10 @@ public class ReferencedLinkProcessor implements JsonDeserializer<ReferencedLink>
                 result = new ReferencedLink<GitHubCommit>();
                 result.target = context.deserialize(json.getAsJsonObject().get("commit"), new TypeToken<GitHubCommit>() {}.getType());
 
-                boolean addedToPullRequest = json.getAsJsonObject().get("type").getAsString().equals("commitAddedToPullRequest");
-                ((GitHubCommit) result.target).setAddedToPullRequest(addedToPullRequest);
+                // commits may be shared between links (e.g., in normalized dumps), so never reset the marker
+                if (json.getAsJsonObject().get("type").getAsString().equals("commitAddedToPullRequest")) {
+                    ((GitHubCommit) result.target).setAddedToPullRequest(true);
+                }
                 result.type = json.getAsJsonObject().get("type").getAsString();
                 break;
             default:
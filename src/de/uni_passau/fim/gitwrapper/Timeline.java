@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Timeline of an issue as returned by the timeline API of GitHub, split into the parts that are requested
+ * separately otherwise.
+ *
+ * @see GitHubRepository#getTimeline(IssueData)
+ */
+class Timeline {
+
+    final List<ReferencedLink<String>> comments = new ArrayList<>();
+    final List<EventData> events = new ArrayList<>();
+    final List<ReviewData> reviews = new ArrayList<>();
+
+    // commits of a pull request, without the usernames of their authors and committers
+    final List<GitHubCommit> commits = new ArrayList<>();
+
+    // issues of the same repository that reference the issue, as cross-referenced by GitHub
+    final List<ReferencedLink<Integer>> referencedBy = new ArrayList<>();
+}
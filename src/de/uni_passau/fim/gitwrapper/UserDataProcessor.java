@@ -22,12 +22,15 @@ import com.google.gson.*;
 
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * The UserDataSerializer helps with keeping track of UserData (including the email, which is not provided directly by
- * GitHub).
+ * GitHub). Users are shared by all repositories by username in bounded caches, while the mapping from names in the
+ * local git history to users is kept per repository.
  */
 public class UserDataProcessor implements JsonDeserializer<UserData> {
 
@@ -35,16 +38,27 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
 
     public static final UserData DUMMY_USER = new UserData();
 
-    private static Map<String, UserData> strictUsersByUsername = new ConcurrentHashMap<>();
-    private static Map<String, UserData> guessedUsersByUsername = new ConcurrentHashMap<>();
-    private static Map<String, UserData> strictUsersByName = new ConcurrentHashMap<>();
-    private static Map<String, UserData> guessedUsersByName = new ConcurrentHashMap<>();
+    /**
+     * The default number of users kept in each of the caches.
+     */
+    static final int DEFAULT_CAPACITY = 50000;
+
+    private static BoundedCache<String, UserData> strictUsersByUsername = new BoundedCache<>("strict users by username", DEFAULT_CAPACITY, (username, user) -> spill("strict", user));
+    private static BoundedCache<String, UserData> guessedUsersByUsername = new BoundedCache<>("guessed users by username", DEFAULT_CAPACITY, (username, user) -> spill("guessed", user));
+    private static BoundedCache<String, UserData> usersWithoutEmailByUsername = new BoundedCache<>("users without email by username", DEFAULT_CAPACITY, (username, user) -> spill("noemail", user));
+    private static BoundedCache<String, UserData> usersWithoutProfileByUsername = new BoundedCache<>("users without profile", DEFAULT_CAPACITY);
+    private static Map<String, CompletableFuture<UserData>> userLookups = new ConcurrentHashMap<>();
+    private static volatile UserStore spillStore;
     private static final JsonParser parser = new JsonParser();
 
     private final GitHubRepository repo;
+    private final Map<String, UserData> strictUsersByName = new ConcurrentHashMap<>();
+    private final Map<String, UserData> guessedUsersByName = new ConcurrentHashMap<>();
+    private final Map<String, UserData> usersWithoutEmailByName = new ConcurrentHashMap<>();
 
     /**
-     * Creates a new UserDataDeserializer for the given repo
+     * Creates a new UserDataDeserializer for the given repo. The repo should only use a single instance, as it holds
+     * the names of the users of the repo.
      *
      * @param repo
      *         the repo
@@ -55,12 +69,166 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
 
     @Override
     public UserData deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        Map<String, UserData> lookupList = repo.allowGuessing() ? guessedUsersByUsername : strictUsersByUsername;
-
         String username = json.getAsJsonObject().get("login").getAsString();
-        if (lookupList.containsKey(username)) return lookupList.get(username);
+        if (!repo.getFetchProfile().includes(FetchProfile.Resource.USERS)) {
+            return getUserWithoutProfile(username);
+        }
+
+        return lookupUser(username, json.getAsJsonObject().get("url").getAsString());
+    }
+
+    /**
+     * Gets the user with the given username from the known users, from the {@link UserStore} of the repository, or
+     * from GitHub, in that order. Concurrent lookups of the same user wait for a single request. The name of the user
+     * is mapped to the user in this repository.
+     *
+     * @param username
+     *         the username
+     * @param url
+     *         the url to the user profile
+     * @return the UserData representing the user
+     */
+    private UserData lookupUser(String username, String url) {
+        UserData user = getUsersByUsername().get(username);
+        if (user != null) {
+            insertName(user);
+            return user;
+        }
+
+        String variant = getVariant();
+        CompletableFuture<UserData> lookup = new CompletableFuture<>();
+        CompletableFuture<UserData> running = userLookups.putIfAbsent(variant + "/" + username, lookup);
+        if (running != null) {
+            return running.join();
+        }
+
+        try {
+            // the user may have been inserted while we were checking for running lookups
+            user = getUsersByUsername().get(username);
+            if (user != null) {
+                insertName(user);
+            } else {
+                UserStore store = repo.getUserStore();
+                if (store != null) {
+                    spillStore = store;
+                }
+                Optional<UserData> stored = store == null ? Optional.empty() : store.get(variant, username);
+                if (stored.isPresent()) {
+                    user = stored.get();
+                    insertUser(user);
+                } else {
+                    user = buildAndInsertUser(username, url);
+                    if (store != null && user != DUMMY_USER) {
+                        store.put(variant, user);
+                    }
+                }
+            }
+            lookup.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            userLookups.remove(variant + "/" + username, lookup);
+        }
+    }
+
+    /**
+     * Gets the name of the way users are built with the current settings of the repository.
+     *
+     * @return the name of the variant
+     */
+    private String getVariant() {
+        if (!repo.getFetchProfile().includes(FetchProfile.Resource.EMAILS)) {
+            return "noemail";
+        }
+        return repo.allowGuessing() ? "guessed" : "strict";
+    }
+
+    /**
+     * Sets the maximum number of users kept in each of the caches.
+     *
+     * @param capacity
+     *         the maximum number of users
+     */
+    static void setCapacity(int capacity) {
+        allCaches().forEach(cache -> cache.setCapacity(capacity));
+    }
+
+    /**
+     * Gets the sizes, hits, misses, and evictions of the caches.
+     *
+     * @return a description of the caches, one per line
+     */
+    static String getCacheStatistics() {
+        return allCaches().stream().map(BoundedCache::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Gets all caches of users.
+     *
+     * @return the list of caches
+     */
+    private static List<BoundedCache<String, UserData>> allCaches() {
+        return Arrays.asList(strictUsersByUsername, guessedUsersByUsername, usersWithoutEmailByUsername,
+                usersWithoutProfileByUsername);
+    }
 
-        return buildAndInsertUser(username, json.getAsJsonObject().get("url").getAsString());
+    /**
+     * Writes a user evicted from the caches to the most recently used {@link UserStore}, if it does not hold the user
+     * yet, so that the user is not requested from GitHub again if needed later.
+     *
+     * @param variant
+     *         the way the user was built
+     * @param user
+     *         the evicted user
+     */
+    private static void spill(String variant, UserData user) {
+        UserStore store = spillStore;
+        if (store != null && !store.get(variant, user.username).isPresent()) {
+            store.put(variant, user);
+        }
+    }
+
+    /**
+     * Gets the cache of known users by username matching the current settings of the repository.
+     *
+     * @return the cache of users
+     */
+    private BoundedCache<String, UserData> getUsersByUsername() {
+        if (!repo.getFetchProfile().includes(FetchProfile.Resource.EMAILS)) {
+            return usersWithoutEmailByUsername;
+        }
+        return repo.allowGuessing() ? guessedUsersByUsername : strictUsersByUsername;
+    }
+
+    /**
+     * Gets the known users of this repository by name matching the current settings of the repository.
+     *
+     * @return the map of users
+     */
+    private Map<String, UserData> getUsersByName() {
+        if (!repo.getFetchProfile().includes(FetchProfile.Resource.EMAILS)) {
+            return usersWithoutEmailByName;
+        }
+        return repo.allowGuessing() ? guessedUsersByName : strictUsersByName;
+    }
+
+    /**
+     * Gets a UserData instance that only knows the username, as user profiles are not part of the
+     * {@link FetchProfile} of the repository.
+     *
+     * @param username
+     *         the username
+     * @return the UserData representing the user
+     */
+    private UserData getUserWithoutProfile(String username) {
+        return usersWithoutProfileByUsername.computeIfAbsent(username, name -> {
+            UserData user = new UserData();
+            user.username = name;
+            user.email = "";
+            return user;
+        });
     }
 
     /**
@@ -90,15 +258,16 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
 
         /////EMAIL///// >
         user.email = "";
+        boolean includeEmails = repo.getFetchProfile().includes(FetchProfile.Resource.EMAILS);
         // first look at profile
         JsonElement email = data.getAsJsonObject().get("email");
-        if (email != null && !(email instanceof JsonNull)) {
+        if (includeEmails && email != null && !(email instanceof JsonNull)) {
             user.email = email.getAsString();
         }
 
         // if we want to guess for emails, look at user history
         boolean guess = repo.allowGuessing();
-        if (guess) {
+        if (includeEmails && guess) {
             // get list of recent pushes
             Optional<String> eventsData = repo.getJSONStringFromURL(data.getAsJsonObject().get("events_url").getAsString().replaceAll("\\{.*}$", ""));
             JsonElement userData = parser.parse(eventsData.orElse(""));
@@ -133,12 +302,31 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
         } /////EMAIL///// <
 
         // Finally insert and return
-        (guess ? guessedUsersByUsername : strictUsersByUsername).put(username, user);
+        insertUser(user);
+        return user;
+    }
+
+    /**
+     * Adds a user to the known users matching the current settings of the repository.
+     *
+     * @param user
+     *         the user
+     */
+    private void insertUser(UserData user) {
+        getUsersByUsername().put(user.username, user);
+        insertName(user);
+    }
+
+    /**
+     * Maps the name of a user to the user in this repository, if the user has a name.
+     *
+     * @param user
+     *         the user
+     */
+    private void insertName(UserData user) {
         if (user.name != null) {
-            (guess ? guessedUsersByName : strictUsersByName).put(user.name, user);
+            getUsersByName().put(user.name, user);
         }
-
-        return user;
     }
 
     /**
@@ -150,10 +338,10 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
      */
     Optional<UserData> getUserByUsername(String username) {
         if (username == null) return Optional.empty();
-        Map<String, UserData> lookupList = repo.allowGuessing() ? guessedUsersByUsername : strictUsersByUsername;
-        UserData user = lookupList.get(username);
-        if (user != null) return Optional.of(user);
-        return Optional.ofNullable(buildAndInsertUser(username, "https://api.github.com/users/" + username));
+        if (!repo.getFetchProfile().includes(FetchProfile.Resource.USERS)) {
+            return Optional.of(getUserWithoutProfile(username));
+        }
+        return Optional.ofNullable(lookupUser(username, "https://api.github.com/users/" + username));
     }
 
     /**
@@ -161,11 +349,11 @@ public class UserDataProcessor implements JsonDeserializer<UserData> {
      *
      * @param name
      *         the users name
-     * @return optically the UserData, or an empty Optional if that name has not yet been in mapped to a user, or if
-     * the mapping is not unique.
+     * @return optically the UserData, or an empty Optional if that name has not yet been in mapped to a user of this
+     * repository, or if the mapping is not unique.
      */
     Optional<UserData> getUserByName(String name) {
         if (name == null) return Optional.empty();
-        return Optional.ofNullable((repo.allowGuessing() ? guessedUsersByName : strictUsersByName).get(name));
+        return Optional.ofNullable(getUsersByName().get(name));
     }
 }
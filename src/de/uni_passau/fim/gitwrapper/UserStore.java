@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2022 Thomas Bock
+ *
+ * This file is part of GitHubWrapper.
+ *
+ * GitHubWrapper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * GitHubWrapper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with GitWrapper. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.uni_passau.fim.gitwrapper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * The UserStore keeps the user profiles requested from GitHub across runs, so that recurring users do not cost API
+ * requests again. A store may be shared by all repositories. Profiles are requested again once they are older than the
+ * time to live of the store.
+ *
+ * The store is a file with one JSON object per line, to which new profiles are appended. It is read when the first
+ * profile is requested; later lines supersede earlier ones.
+ */
+public class UserStore implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(UserStore.class.getCanonicalName());
+
+    /**
+     * The default time after which a stored profile is requested again.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofDays(30);
+
+    private final File file;
+    private final Duration ttl;
+    private final Gson gson = new Gson();
+    private Map<String, Record> records;
+    private Writer writer;
+
+    /**
+     * A stored user profile.
+     */
+    private static class Record {
+
+        String variant;
+        String username;
+        String name;
+        String email;
+        long time;
+    }
+
+    /**
+     * Opens the store in the given file, which is created when the first profile is stored. Profiles are requested
+     * again after {@link #DEFAULT_TTL}.
+     *
+     * @param file
+     *         the file
+     */
+    public UserStore(File file) {
+        this(file, DEFAULT_TTL);
+    }
+
+    /**
+     * Opens the store in the given file, which is created when the first profile is stored.
+     *
+     * @param file
+     *         the file
+     * @param ttl
+     *         the time after which a stored profile is requested again
+     */
+    public UserStore(File file, Duration ttl) {
+        this.file = file;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Gets a stored user profile that has not expired yet.
+     *
+     * @param variant
+     *         the way the profile was built, e.g., whether emails were guessed
+     * @param username
+     *         the GitHub username
+     * @return optionally the user, or an empty Optional if the profile has to be requested
+     */
+    synchronized Optional<UserData> get(String variant, String username) {
+        if (records == null) {
+            load();
+        }
+
+        Record record = records.get(variant + "/" + username);
+        if (record == null || Instant.ofEpochSecond(record.time).plus(ttl).isBefore(Instant.now())) {
+            return Optional.empty();
+        }
+
+        UserData user = new UserData();
+        user.username = record.username;
+        user.name = record.name;
+        user.email = record.email;
+        return Optional.of(user);
+    }
+
+    /**
+     * Stores a user profile.
+     *
+     * @param variant
+     *         the way the profile was built, e.g., whether emails were guessed
+     * @param user
+     *         the user
+     */
+    synchronized void put(String variant, UserData user) {
+        if (records == null) {
+            load();
+        }
+
+        Record record = new Record();
+        record.variant = variant;
+        record.username = user.username;
+        record.name = user.name;
+        record.email = user.email;
+        record.time = Instant.now().getEpochSecond();
+        records.put(variant + "/" + user.username, record);
+
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            }
+            writer.write(gson.toJson(record));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            LOG.warning("Could not write to user store " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Reads the stored profiles, skipping damaged lines.
+     */
+    private void load() {
+        records = new HashMap<>();
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    Record record = gson.fromJson(line, Record.class);
+                    if (record != null && record.variant != null && record.username != null) {
+                        records.put(record.variant + "/" + record.username, record);
+                    }
+                } catch (JsonParseException e) {
+                    LOG.warning("Skipping damaged entry in user store " + file + ": " + e);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warning("Could not read user store " + file + ": " + e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -20,16 +20,25 @@
  */
 package de.uni_passau.fim.issuerunner;
 
+import de.uni_passau.fim.gitwrapper.CommitStore;
+import de.uni_passau.fim.gitwrapper.DumpCompression;
+import de.uni_passau.fim.gitwrapper.DumpFormat;
+import de.uni_passau.fim.gitwrapper.DumpIndex;
+import de.uni_passau.fim.gitwrapper.FetchProfile;
 import de.uni_passau.fim.gitwrapper.GitHubRepository;
 import de.uni_passau.fim.gitwrapper.GitWrapper;
 import de.uni_passau.fim.gitwrapper.IssueData;
+import de.uni_passau.fim.gitwrapper.LinkResolution;
+import de.uni_passau.fim.gitwrapper.MissingResources;
 import de.uni_passau.fim.gitwrapper.Repository;
+import de.uni_passau.fim.gitwrapper.UserStore;
 import de.uni_passau.fim.processexecutor.ToolNotWorkingException;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import java.io.*;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -93,6 +102,81 @@ public class IssueRunner {
             usage = "Directory to put the JSON dumps in.")
     private String outputDir = null;
 
+    @Option(name = "-format",
+            metaVar = "json|ndjson|normalized",
+            usage = "Layout of the written dumps: a pretty-printed JSON array (default), newline-delimited JSON " +
+                    "with one issue per line, or a normalized dump storing each user and commit only once. " +
+                    "Existing dumps in any layout can be used as cache.")
+    private DumpFormat format = DumpFormat.JSON;
+
+    @Option(name = "-syncInterval",
+            metaVar = "n",
+            usage = "Sync NDJSON dumps to disk after every n issues. (Default is to sync only when closing the dump)")
+    private int syncInterval = 0;
+
+    @Option(name = "-compression",
+            metaVar = "none|gzip|zstd",
+            depends = {"-outputDir"},
+            usage = "Compression of the dumps written to outputDir. Dumps given via -dump are compressed according to " +
+                    "their file extension (.gz or .zst). Compressed caches are detected automatically.")
+    private DumpCompression compression = DumpCompression.NONE;
+
+    @Option(name = "-links",
+            metaVar = "eager|lazy|skip",
+            usage = "Resolution of the commits and issues referenced in issues: while getting the issues (default), " +
+                    "in one batch when writing the dumps, or not at all.")
+    private LinkResolution links = LinkResolution.EAGER;
+
+    @Option(name = "-include",
+            metaVar = "comments,events,reviews,commits,users,emails",
+            usage = "Comma-separated list of the resources to request for every issue. Resources not included are " +
+                    "empty in the dumps. (Default is all of them)")
+    private String include = null;
+
+    @Option(name = "-timeline",
+            usage = "Request comments, events, reviews, and commits of every issue from the timeline API in a single " +
+                    "stream, which also captures cross-references between issues.")
+    private boolean timeline = false;
+
+    @Option(name = "-commitStore",
+            metaVar = "file",
+            usage = "File that keeps the commits looked up on GitHub across runs, so that they are not requested " +
+                    "again. Created if it does not exist.")
+    private String commitStoreFile = null;
+
+    @Option(name = "-userStore",
+            metaVar = "file",
+            usage = "File that keeps the user profiles requested from GitHub across runs, so that they are not " +
+                    "requested again within userTtl days. Created if it does not exist.")
+    private String userStoreFile = null;
+
+    @Option(name = "-userTtl",
+            metaVar = "days",
+            depends = {"-userStore"},
+            usage = "Number of days after which the user profiles in the userStore are requested again. (Default is 30)")
+    private int userTtl = (int) UserStore.DEFAULT_TTL.toDays();
+
+    @Option(name = "-cacheCapacity",
+            metaVar = "n",
+            usage = "Maximum number of commit lookups, issue lookups, and users kept in memory per cache. " +
+                    "Least recently used entries are evicted first. (Default is 100000 lookups and 50000 users)")
+    private int cacheCapacity = 0;
+
+    @Option(name = "-preloadCommits",
+            usage = "Read all commits of every repository with a single git call before getting the issues, instead " +
+                    "of calling git for every referenced commit.")
+    private boolean preloadCommits = false;
+
+    @Option(name = "-catFile",
+            usage = "Read the commits of every repository through a single long-running git cat-file process instead " +
+                    "of calling git for every commit.")
+    private boolean catFile = false;
+
+    @Option(name = "-localPullRequestCommits",
+            usage = "Determine the commits of pull requests from the history of the local repository if it contains " +
+                    "their heads and bases, instead of requesting them from GitHub.")
+    private boolean localPullRequestCommits = false;
+
     public static void main(String[] args) {
         final IssueRunner runner = new IssueRunner();
 
@@ -116,6 +200,17 @@ public class IssueRunner {
             System.exit(-1);
         }
 
+        FetchProfile profile = FetchProfile.ALL;
+        if (include != null) {
+            try {
+                profile = FetchProfile.parse(include);
+            } catch (IllegalArgumentException e) {
+                System.out.println("ERROR: Unknown resource in -include: " + include);
+                parser.printUsage(System.out);
+                System.exit(-1);
+            }
+        }
+
         List<String> repos = null;
         if (repoList != null && outputDir != null) {
             repos = getLinesFromFile(new File(repoList));
@@ -150,9 +245,30 @@ public class IssueRunner {
             }
         }
 
+        CommitStore commitStore = null;
+        if (commitStoreFile != null) {
+            try {
+                commitStore = new CommitStore(new File(commitStoreFile));
+            } catch (IOException e) {
+                LOG.severe("Cannot open commit store: " + e);
+            }
+        }
+
+        UserStore userStore = null;
+        if (userStoreFile != null) {
+            userStore = new UserStore(new File(userStoreFile), Duration.ofDays(userTtl));
+        }
+
+        if (cacheCapacity > 0) {
+            GitHubRepository.setUserCacheCapacity(cacheCapacity);
+        }
+
         GitWrapper git = new GitWrapper("git");
         List<String> finalTokens = tokens;
         BufferedWriter finalRepoListFile = repoListFile;
+        FetchProfile finalProfile = profile;
+        CommitStore finalCommitStore = commitStore;
+        UserStore finalUserStore = userStore;
         repos.forEach(line -> {
             String[] info = line.split("\\s+");
             LOG.info("Running for repo " + info[0]);
@@ -204,6 +320,19 @@ public class IssueRunner {
                 repo = new GitHubRepository(clone.get(), finalTokens);
             }
 
+            repo.setLinkResolution(links);
+            repo.setFetchProfile(finalProfile);
+            repo.useTimeline(timeline);
+            repo.setCommitStore(finalCommitStore);
+            repo.setUserStore(finalUserStore);
+            if (cacheCapacity > 0) {
+                repo.setCacheCapacity(cacheCapacity);
+            }
+            if (preloadCommits) {
+                repo.preloadCommits();
+            }
+            repo.useCatFile(catFile);
+            repo.useLocalPullRequestCommits(localPullRequestCommits);
             Optional<List<IssueData>> issueData = repo.getIssues(true, since);
 
             if (!issueData.isPresent()) {
@@ -214,20 +343,41 @@ public class IssueRunner {
             File outFile = null;
             FileOutputStream outStream = null;
             try {
+                DumpCompression outCompression;
                 if (dump != null) {
                     outFile = new File(dump);
+                    outCompression = DumpCompression.fromFileName(outFile);
                 } else {
-                    outFile = new File(new File(outputDir), repo.getName() + ".json");
+                    outFile = new File(new File(outputDir), repo.getName() + ".json" + compression.getExtension());
+                    outCompression = compression;
                 }
 
                 // Use FileOutputStream instead of BufferedWriter to prevent OutOfMemoryErrors on huge amount of data
                 outStream = new FileOutputStream(outFile);
-                OutputStreamWriter outStreamWriter = new OutputStreamWriter(outStream,"UTF-8");
-                repo.streamSerialize(outStreamWriter, issueData.get());
-                outStreamWriter.close();
+                OutputStream dumpStream = outCompression.compress(outStream);
+                if (format == DumpFormat.NDJSON) {
+                    // only uncompressed dumps can be accessed randomly, so only these get an index
+                    DumpIndex index = outCompression == DumpCompression.NONE ? new DumpIndex() : null;
+                    repo.streamSerializeLines(dumpStream, issueData.get(), outStream.getFD(), syncInterval, index);
+                    dumpStream.close();
+                    if (index != null) {
+                        index.write(DumpIndex.getIndexFile(outFile));
+                    }
+                } else if (format == DumpFormat.NORMALIZED) {
+                    repo.streamSerializeNormalized(dumpStream, issueData.get());
+                    dumpStream.close();
+                } else {
+                    OutputStreamWriter outStreamWriter = new OutputStreamWriter(dumpStream, "UTF-8");
+                    repo.streamSerialize(outStreamWriter, issueData.get());
+                    outStreamWriter.close();
+                }
+                repo.getMissingResources().write(MissingResources.getFile(outFile));
             } catch (IOException e) {
                 LOG.severe("Could not write JSON to file: " + e);
             }
+            // stops git cat-file, if running
+            repo.useCatFile(false);
+            LOG.info("Cache statistics for repo " + info[0] + ":\n" + repo.getCacheStatistics());
             if (finalRepoListFile != null) {
                 try {
                     finalRepoListFile.write(repo.getUrl() + " " + startTime.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)
@@ -246,6 +396,22 @@ public class IssueRunner {
                 LOG.severe("Could not write repo list to file: " + e);
             }
         }
+
+        if (finalCommitStore != null) {
+            try {
+                finalCommitStore.close();
+            } catch (IOException e) {
+                LOG.severe("Could not close commit store: " + e);
+            }
+        }
+
+        if (finalUserStore != null) {
+            try {
+                finalUserStore.close();
+            } catch (IOException e) {
+                LOG.severe("Could not close user store: " + e);
+            }
+        }
     }
 
     private static List<String> getLinesFromFile(File file) {